@@ -1,7 +1,10 @@
 package net.englab.indexer.configs;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.json.JsonpMapper;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.ElasticsearchTransport;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.json.JsonMapper;
@@ -13,13 +16,27 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class ElasticSearchConfiguration {
     @Bean
-    public ElasticsearchClient elasticsearchClient(RestClient restClient) {
+    public JsonpMapper jsonpMapper() {
         ObjectMapper objectMapper = JsonMapper.builder()
                 .findAndAddModules()
                 .addModule(new SearchCommonModule())
                 .build();
 
-        var transport = new RestClientTransport(restClient, new JacksonJsonpMapper(objectMapper));
+        return new JacksonJsonpMapper(objectMapper);
+    }
+
+    @Bean
+    public ElasticsearchTransport elasticsearchTransport(RestClient restClient, JsonpMapper jsonpMapper) {
+        return new RestClientTransport(restClient, jsonpMapper);
+    }
+
+    @Bean
+    public ElasticsearchClient elasticsearchClient(ElasticsearchTransport transport) {
         return new ElasticsearchClient(transport);
     }
+
+    @Bean
+    public ElasticsearchAsyncClient elasticsearchAsyncClient(ElasticsearchTransport transport) {
+        return new ElasticsearchAsyncClient(transport);
+    }
 }
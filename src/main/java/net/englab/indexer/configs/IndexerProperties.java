@@ -0,0 +1,152 @@
+package net.englab.indexer.configs;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * The configuration properties of the indexer.
+ *
+ * @param reader    the settings for reading videos from the database
+ * @param writer    the settings for writing indexed videos to the database
+ * @param pipeline  the settings of the indexing pipeline stages
+ * @param bulk      the settings for sending documents to Elasticsearch
+ * @param index     the settings of Elasticsearch indices
+ * @param job       the settings of full reindexing jobs
+ * @param cache     the settings of the cache of extracted sentences
+ * @param sentences the settings of sentence detection
+ */
+@ConfigurationProperties("indexer")
+public record IndexerProperties(Reader reader, Writer writer, Stages pipeline, Bulk bulk, Index index, Job job,
+                                Cache cache, Sentences sentences) {
+
+    /**
+     * The settings for reading videos from the database during full reindexing.
+     *
+     * @param batchSize the number of videos that are fetched from the database at once
+     */
+    public record Reader(int batchSize) {
+    }
+
+    /**
+     * The settings for writing indexed videos to the database during full reindexing.
+     *
+     * @param batchSize the number of indexed videos that are saved to the database at once
+     */
+    public record Writer(int batchSize) {
+    }
+
+    /**
+     * The settings of the indexing pipeline stages.
+     *
+     * @param parse         the stage that parses subtitles and stores indexed videos
+     * @param extraction    the stage that extracts sentences from subtitles
+     * @param build         the stage that builds Elasticsearch documents
+     * @param bulk          the stage that sends documents to Elasticsearch
+     */
+    public record Stages(Stage parse, Stage extraction, Stage build, Stage bulk) {
+    }
+
+    /**
+     * The settings of a single pipeline stage.
+     *
+     * @param parallelism   the number of threads that run the stage.
+     *                      Zero means the number of available processors.
+     * @param queueCapacity the maximum number of items waiting to be processed by the stage
+     */
+    public record Stage(int parallelism, int queueCapacity) {
+
+        /**
+         * Returns the actual number of threads that should run the stage.
+         */
+        public int threads() {
+            return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        }
+    }
+
+    /**
+     * The settings for sending documents to Elasticsearch.
+     * A bulk request is sent when any of the limits is reached.
+     *
+     * @param maxInFlight   the maximum number of bulk requests that can be executed concurrently
+     * @param maxDocs       the maximum number of documents in a bulk request
+     * @param maxSize       the maximum estimated size of a bulk request
+     * @param linger        the maximum time a document can wait before it's sent
+     * @param retry         the settings for resending rejected documents
+     */
+    public record Bulk(int maxInFlight, int maxDocs, DataSize maxSize, Duration linger, Retry retry) {
+    }
+
+    /**
+     * The settings for resending documents that have been rejected by Elasticsearch.
+     *
+     * @param maxRetries        the maximum number of times a document can be resent
+     * @param initialBackoff    the delay before the first retry, it's doubled with each next retry
+     * @param maxBackoff        the maximum delay between retries
+     * @param budget            the maximum number of documents that can be resent during a single session
+     */
+    public record Retry(int maxRetries, Duration initialBackoff, Duration maxBackoff, long budget) {
+    }
+
+    /**
+     * The settings of Elasticsearch indices.
+     *
+     * @param refreshInterval   the refresh interval of a live index
+     * @param replicas          the number of replicas of a live index
+     * @param maxSegments       the number of segments a freshly built index is merged into
+     * @param greenTimeout      the maximum time to wait for the replicas of a freshly built index
+     * @param mergeTimeout      the maximum time to wait for a freshly built index to be merged
+     */
+    public record Index(String refreshInterval, int replicas, int maxSegments, Duration greenTimeout,
+                        Duration mergeTimeout) {
+    }
+
+    /**
+     * The settings of full reindexing jobs.
+     *
+     * @param checkpointInterval how often the progress of a running job is saved
+     */
+    public record Job(Duration checkpointInterval) {
+    }
+
+    /**
+     * The settings of the cache of the sentences extracted from subtitles.
+     *
+     * @param enabled       whether the sentences are cached
+     * @param touchInterval how often the time when a cached entry was last used is updated
+     */
+    public record Cache(boolean enabled, Duration touchInterval) {
+    }
+
+    /**
+     * The settings of sentence detection. Changing the detector changes the documents,
+     * so the index should be rebuilt by a full reindex afterwards.
+     *
+     * @param detector      the detector that splits the text of subtitles into sentences
+     * @param chunkSize     the number of characters after which the text of subtitles
+     *                      is split into chunks that are processed in parallel
+     * @param chunkOverlap  the number of characters a chunk is extended by on both sides,
+     *                      so the sentences that cross the edges of the chunk are detected correctly
+     * @param chunkThreads  the number of threads that detect sentences in the chunks of long subtitles.
+     *                      They are added to the threads of the extraction stage, and zero means
+     *                      the chunks are processed one by one in the stage thread.
+     */
+    public record Sentences(Detector detector, int chunkSize, int chunkOverlap, int chunkThreads) {
+    }
+
+    /**
+     * The available sentence detectors.
+     */
+    public enum Detector {
+        /**
+         * The Machine Learning detector based on OpenNLP, it's the most accurate one.
+         */
+        OPENNLP,
+
+        /**
+         * The detector based on hand-written rules, it's several times faster but less accurate.
+         */
+        RULE_BASED
+    }
+}
@@ -0,0 +1,56 @@
+package net.englab.indexer.configs;
+
+import net.englab.indexer.subtitles.OpenNlpSentenceDetector;
+import net.englab.indexer.subtitles.RuleBasedSentenceDetector;
+import net.englab.indexer.subtitles.SentenceDetector;
+import net.englab.indexer.subtitles.SubtitleSentenceExtractor;
+import opennlp.tools.sentdetect.SentenceModel;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class SentenceDetectionConfiguration implements DisposableBean {
+    // the pool is not a bean, since an executor bean would replace the task executor of Spring Boot
+    private ExecutorService chunkExecutor;
+
+    // the model is loaded only if the detector that needs it is configured
+    @Bean
+    @Lazy
+    public SentenceModel sentenceModel() {
+        return OpenNlpSentenceDetector.loadModel();
+    }
+
+    @Bean
+    public SentenceDetector sentenceDetector(IndexerProperties properties, ObjectProvider<SentenceModel> sentenceModel) {
+        return switch (properties.sentences().detector()) {
+            case OPENNLP -> new OpenNlpSentenceDetector(sentenceModel.getObject());
+            case RULE_BASED -> new RuleBasedSentenceDetector();
+        };
+    }
+
+    @Bean
+    public SubtitleSentenceExtractor subtitleSentenceExtractor(IndexerProperties properties,
+                                                               SentenceDetector sentenceDetector) {
+        IndexerProperties.Sentences sentences = properties.sentences();
+        if (sentences.chunkThreads() <= 0) {
+            return new SubtitleSentenceExtractor(sentenceDetector, sentences.chunkSize(), sentences.chunkOverlap());
+        }
+        chunkExecutor = Executors.newFixedThreadPool(sentences.chunkThreads(),
+                Thread.ofPlatform().name("sentence-chunks-", 0).daemon().factory());
+        return new SubtitleSentenceExtractor(sentenceDetector, sentences.chunkSize(), sentences.chunkOverlap(),
+                chunkExecutor);
+    }
+
+    @Override
+    public void destroy() {
+        if (chunkExecutor != null) {
+            chunkExecutor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package net.englab.indexer.exceptions;
+
+/**
+ * The exception is thrown when subtitles cannot be parsed because they are not in the SRT format.
+ */
+public class SrtFormatException extends RuntimeException {
+    public SrtFormatException(String message) {
+        super(message);
+    }
+}
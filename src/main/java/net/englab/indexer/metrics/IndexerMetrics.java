@@ -0,0 +1,170 @@
+package net.englab.indexer.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.englab.common.search.models.common.EnglishVariety;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the meters of the indexing hot paths. All the meters are registered up front
+ * and looked up by low-cardinality keys, so recording a value does not allocate anything.
+ * The callers measure time with {@link System#nanoTime()} and record the elapsed nanoseconds.
+ */
+@Component
+public class IndexerMetrics {
+    private final MeterRegistry registry;
+    private final Map<EnglishVariety, Timer> parseTimers = new EnumMap<>(EnglishVariety.class);
+    private final Map<EnglishVariety, Timer> extractionTimers = new EnumMap<>(EnglishVariety.class);
+    private final Map<EnglishVariety, DistributionSummary> sentenceSummaries = new EnumMap<>(EnglishVariety.class);
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final BulkMeters syncBulkMeters;
+    private final BulkMeters asyncBulkMeters;
+    private final Map<String, Timer> adminTimers = new ConcurrentHashMap<>();
+
+    public IndexerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (EnglishVariety variety : EnglishVariety.values()) {
+            String tag = variety.name().toLowerCase();
+            parseTimers.put(variety, Timer.builder("indexer.subtitles.parse")
+                    .description("The time it takes to parse SRT subtitles")
+                    .tag("variety", tag)
+                    .publishPercentileHistogram()
+                    .register(registry));
+            extractionTimers.put(variety, Timer.builder("indexer.sentences.extract")
+                    .description("The time it takes to extract sentences from subtitles")
+                    .tag("variety", tag)
+                    .publishPercentileHistogram()
+                    .register(registry));
+            sentenceSummaries.put(variety, DistributionSummary.builder("indexer.sentences.per.video")
+                    .description("The number of sentences extracted from a video")
+                    .tag("variety", tag)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        cacheHits = Counter.builder("indexer.sentences.cache")
+                .description("The number of lookups in the cache of extracted sentences")
+                .tag("result", "hit")
+                .register(registry);
+        cacheMisses = Counter.builder("indexer.sentences.cache")
+                .description("The number of lookups in the cache of extracted sentences")
+                .tag("result", "miss")
+                .register(registry);
+        syncBulkMeters = new BulkMeters(registry, "sync");
+        asyncBulkMeters = new BulkMeters(registry, "async");
+    }
+
+    /**
+     * Records the time it took to parse the subtitles of a video.
+     */
+    public void recordParse(EnglishVariety variety, long nanos) {
+        parseTimers.get(variety).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the time it took to extract sentences from a video and the number of the sentences.
+     */
+    public void recordExtraction(EnglishVariety variety, long nanos, int sentences) {
+        extractionTimers.get(variety).record(nanos, TimeUnit.NANOSECONDS);
+        sentenceSummaries.get(variety).record(sentences);
+    }
+
+    /**
+     * Records a lookup in the cache of extracted sentences.
+     */
+    public void recordCacheLookup(boolean hit) {
+        (hit ? cacheHits : cacheMisses).increment();
+    }
+
+    /**
+     * Returns the meters of the bulk requests sent by the synchronous client.
+     */
+    public BulkMeters syncBulk() {
+        return syncBulkMeters;
+    }
+
+    /**
+     * Returns the meters of the bulk requests sent by the bulk dispatcher.
+     */
+    public BulkMeters asyncBulk() {
+        return asyncBulkMeters;
+    }
+
+    /**
+     * Records the time it took to run an administrative Elasticsearch operation.
+     *
+     * @param operation the name of the operation, it must be one of a few constants
+     * @param nanos     the elapsed time in nanoseconds
+     */
+    public void recordAdmin(String operation, long nanos) {
+        Timer timer = adminTimers.get(operation);
+        if (timer == null) {
+            timer = adminTimers.computeIfAbsent(operation, op -> Timer.builder("indexer.elastic.admin")
+                    .description("The time it takes to run an administrative Elasticsearch operation")
+                    .tag("operation", op)
+                    .register(registry));
+        }
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * The meters of Elasticsearch bulk requests.
+     */
+    public static final class BulkMeters {
+        private final Timer latency;
+        private final DistributionSummary payload;
+        private final DistributionSummary items;
+        private final Counter failures;
+
+        private BulkMeters(MeterRegistry registry, String client) {
+            latency = Timer.builder("indexer.elastic.bulk.latency")
+                    .description("The time it takes to execute a bulk request")
+                    .tag("client", client)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            payload = DistributionSummary.builder("indexer.elastic.bulk.payload")
+                    .description("The estimated size of a bulk request")
+                    .baseUnit("bytes")
+                    .tag("client", client)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            items = DistributionSummary.builder("indexer.elastic.bulk.items")
+                    .description("The number of operations in a bulk request")
+                    .tag("client", client)
+                    .register(registry);
+            failures = Counter.builder("indexer.elastic.bulk.failures")
+                    .description("The number of bulk operations that have failed")
+                    .tag("client", client)
+                    .register(registry);
+        }
+
+        /**
+         * Records a bulk request that has been sent.
+         */
+        public void recordRequest(int operations, long bytes) {
+            items.record(operations);
+            payload.record(bytes);
+        }
+
+        /**
+         * Records the time it took to get the response to a bulk request.
+         */
+        public void recordLatency(long nanos) {
+            latency.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Records the operations that have failed.
+         */
+        public void recordFailures(int operations) {
+            failures.increment(operations);
+        }
+    }
+}
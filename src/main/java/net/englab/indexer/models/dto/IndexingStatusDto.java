@@ -0,0 +1,20 @@
+package net.englab.indexer.models.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import net.englab.common.search.models.indexing.IndexingInfo;
+import net.englab.indexer.services.IndexingProgress;
+
+/**
+ * A data transfer object record that represents the status of indexing.
+ * The fields of the indexing info stay at the top level, so the clients
+ * that know only about them are not affected.
+ *
+ * @param info      the indexing info
+ * @param progress  the live progress of the running or the last indexing job, if there is any
+ */
+public record IndexingStatusDto(
+        @JsonUnwrapped IndexingInfo info,
+        @JsonInclude(JsonInclude.Include.NON_NULL) IndexingProgress.Snapshot progress
+) {
+}
@@ -0,0 +1,12 @@
+package net.englab.indexer.models.elastic;
+
+import co.elastic.clients.util.BinaryData;
+
+/**
+ * Represents a document that is serialized and ready to be sent to Elasticsearch.
+ *
+ * @param id    the ID of the document
+ * @param data  the serialized document
+ */
+public record ElasticDocument(String id, BinaryData data) {
+}
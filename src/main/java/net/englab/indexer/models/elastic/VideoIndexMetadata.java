@@ -9,10 +9,12 @@ import java.util.Map;
  * Represents the metadata of the video index.
  * The metadata holds information about the last indexing job.
  *
- * @param startTime     the time when the indexing job was started
- * @param finishTime    the time when the indexing job was finished
+ * @param startTime         the time when the indexing job was started
+ * @param finishTime        the time when the indexing job was finished
+ * @param pipelineVersion   the version of the pipeline that has built the index.
+ *                          It's null if the index has been built before the versions were introduced.
  */
-public record VideoIndexMetadata(Instant startTime, Instant finishTime) {
+public record VideoIndexMetadata(Instant startTime, Instant finishTime, Integer pipelineVersion) {
 
     /**
      * Creates new video index metadata based on the metadata map.
@@ -20,13 +22,17 @@ public record VideoIndexMetadata(Instant startTime, Instant finishTime) {
      * @param metadata a metadata map from Elasticsearch
      */
     public VideoIndexMetadata(Map<String, JsonData> metadata) {
-        this(getInstant(metadata, "startTime"), getInstant(metadata, "finishTime"));
+        this(
+                getValue(metadata, "startTime", Instant.class),
+                getValue(metadata, "finishTime", Instant.class),
+                getValue(metadata, "pipelineVersion", Integer.class)
+        );
     }
 
-    private static Instant getInstant(Map<String, JsonData> meta, String key) {
+    private static <T> T getValue(Map<String, JsonData> meta, String key, Class<T> type) {
         JsonData value = meta.get(key);
         if (value == null) return null;
-        return value.to(Instant.class);
+        return value.to(type);
     }
 
     /**
@@ -37,7 +43,8 @@ public record VideoIndexMetadata(Instant startTime, Instant finishTime) {
     public Map<String, JsonData> toMetadata() {
         return Map.of(
                 "startTime", JsonData.of(startTime),
-                "finishTime", JsonData.of(finishTime)
+                "finishTime", JsonData.of(finishTime),
+                "pipelineVersion", JsonData.of(pipelineVersion)
         );
     }
 }
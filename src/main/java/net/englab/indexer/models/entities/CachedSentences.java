@@ -0,0 +1,41 @@
+package net.englab.indexer.models.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Represents the sentences extracted from subtitles that are cached in the database,
+ * so the sentences of unchanged subtitles do not have to be extracted again.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "sentence_cache")
+public class CachedSentences {
+
+    /**
+     * The hash of the subtitles and the version of the pipeline the sentences have been extracted by.
+     */
+    @Id
+    private String hash;
+
+    /**
+     * The sentences encoded in a compact binary form.
+     */
+    private byte[] data;
+
+    /**
+     * The time when the sentences were last used. It's updated at most once per touch interval,
+     * so reading the cache does not turn into a write for every video.
+     */
+    private Instant usedAt;
+}
@@ -0,0 +1,45 @@
+package net.englab.indexer.models.entities;
+
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import net.englab.common.search.models.subtitles.SubtitleEntry;
+import net.englab.indexer.subtitles.SubtitleEntryCodec;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A JPA attribute converter that converts subtitles to the compact binary form and back,
+ * see {@link SubtitleEntryCodec}. The subtitles are decoded lazily, so reading an entity
+ * costs next to nothing until its subtitles are actually used.
+ * The converter is instantiated by Hibernate, so its timers are registered
+ * in the global registry, which Spring Boot connects to the application registry.
+ */
+@Converter
+public class EncodedSubtitleConverter implements AttributeConverter<List<SubtitleEntry>, byte[]> {
+    private static final Timer SERIALIZATION_TIMER = SubtitleConverter.conversionTimer("serialize", "binary");
+    private static final Timer DESERIALIZATION_TIMER = SubtitleConverter.conversionTimer("deserialize", "binary");
+
+    @Override
+    public byte[] convertToDatabaseColumn(List<SubtitleEntry> subtitles) {
+        if (subtitles == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        byte[] data = SubtitleEntryCodec.encode(subtitles);
+        SERIALIZATION_TIMER.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return data;
+    }
+
+    @Override
+    public List<SubtitleEntry> convertToEntityAttribute(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        List<SubtitleEntry> subtitles = SubtitleEntryCodec.decode(data);
+        DESERIALIZATION_TIMER.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return subtitles;
+    }
+}
@@ -1,7 +1,7 @@
 package net.englab.indexer.models.entities;
 
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -12,7 +12,7 @@ import org.hibernate.annotations.Immutable;
 import java.util.List;
 
 import static jakarta.persistence.EnumType.STRING;
-import static jakarta.persistence.GenerationType.IDENTITY;
+import static jakarta.persistence.GenerationType.SEQUENCE;
 
 /**
  * Represents an indexed video entity stored in the database.
@@ -21,15 +21,17 @@ import static jakarta.persistence.GenerationType.IDENTITY;
 @Getter
 @Setter
 @NoArgsConstructor
-@AllArgsConstructor
 @Entity
 public class IndexedVideo {
+    private static final SubtitleConverter JSON_SUBTITLE_CONVERTER = new SubtitleConverter();
 
     /**
      * The unique identifier of the video.
+     * The IDs are taken from a sequence in blocks, which allows Hibernate to batch inserts.
      */
     @Id
-    @GeneratedValue(strategy = IDENTITY)
+    @GeneratedValue(strategy = SEQUENCE, generator = "indexed_video_id_seq")
+    @SequenceGenerator(name = "indexed_video_id_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -54,8 +56,50 @@ public class IndexedVideo {
      * This field is marked as immutable to optimise performance.
      * If the field was mutable, Hibernate would convert it again to make a new copy,
      * which would lead to poor performance because the list of subtitles can be very long.
+     * The subtitles are stored in the compact binary form and decoded lazily.
      */
     @Immutable
-    @Convert(converter = SubtitleConverter.class)
+    @Convert(converter = EncodedSubtitleConverter.class)
+    @Column(name = "encoded_subtitles")
     private List<SubtitleEntry> subtitles;
+
+    /**
+     * The subtitles of the video in JSON. Only the videos that were indexed
+     * before the binary form was introduced have them, and they are parsed
+     * only if the subtitles are requested.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @Column(name = "subtitles")
+    private String jsonSubtitles;
+
+    /**
+     * The hash of the content the video has been indexed from.
+     * It's compared with the hash of the current content to find out
+     * whether the video has to be reindexed.
+     */
+    private String contentHash;
+
+    public IndexedVideo(Long id, String indexName, String youtubeVideoId, EnglishVariety variety,
+                        List<SubtitleEntry> subtitles, String contentHash) {
+        this.id = id;
+        this.indexName = indexName;
+        this.youtubeVideoId = youtubeVideoId;
+        this.variety = variety;
+        this.subtitles = subtitles;
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * Returns the subtitles of the video. The subtitles of the videos that were indexed
+     * before the binary form was introduced are parsed from JSON.
+     *
+     * @return a list of subtitle entries
+     */
+    public List<SubtitleEntry> getSubtitles() {
+        if (subtitles == null && jsonSubtitles != null) {
+            return JSON_SUBTITLE_CONVERTER.convertToEntityAttribute(jsonSubtitles);
+        }
+        return subtitles;
+    }
 }
@@ -0,0 +1,64 @@
+package net.englab.indexer.models.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+import static jakarta.persistence.EnumType.STRING;
+import static jakarta.persistence.GenerationType.IDENTITY;
+
+/**
+ * Represents the persisted state of a full reindexing job.
+ * The job state is checkpointed regularly, so an interrupted job can be resumed
+ * into the same index instead of starting from scratch.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class IndexingJob {
+
+    /**
+     * The unique identifier of the job.
+     */
+    @Id
+    @GeneratedValue(strategy = IDENTITY)
+    private Long id;
+
+    /**
+     * The name of the Elasticsearch index that is being built by the job.
+     */
+    private String indexName;
+
+    /**
+     * The status of the job.
+     */
+    @Enumerated(STRING)
+    private IndexingJobStatus status;
+
+    /**
+     * The time when the job was started.
+     */
+    private Instant startTime;
+
+    /**
+     * The ID of the last video up to which all the videos have been indexed.
+     * Both the Elasticsearch documents and the indexed videos of these videos are acknowledged.
+     */
+    private Long lastVideoId;
+
+    /**
+     * The number of videos that have been indexed up to the last video.
+     */
+    private Long indexedVideos;
+
+    /**
+     * The number of documents that have been indexed up to the last video.
+     */
+    private Long indexedDocs;
+}
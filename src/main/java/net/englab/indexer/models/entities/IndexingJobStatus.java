@@ -0,0 +1,21 @@
+package net.englab.indexer.models.entities;
+
+/**
+ * The status of a full reindexing job.
+ */
+public enum IndexingJobStatus {
+    /**
+     * The job is running or has been interrupted, in which case it can be resumed.
+     */
+    RUNNING,
+
+    /**
+     * The job has been completed, and its index has been published under the alias.
+     */
+    COMPLETED,
+
+    /**
+     * The job cannot be resumed because its index has been lost.
+     */
+    ABANDONED
+}
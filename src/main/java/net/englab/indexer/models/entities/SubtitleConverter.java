@@ -2,29 +2,58 @@ package net.englab.indexer.models.entities;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import jakarta.persistence.AttributeConverter;
 import jakarta.persistence.Converter;
 import lombok.SneakyThrows;
 import net.englab.common.search.models.subtitles.SubtitleEntry;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A JPA attribute converter that can convert any entity attribute to JSON and back.
+ * New subtitles are stored in the binary form by {@link EncodedSubtitleConverter},
+ * and this converter is kept to read the subtitles that were stored before.
+ * The converter is instantiated by Hibernate, so its timers are registered
+ * in the global registry, which Spring Boot connects to the application registry.
  */
 @Converter
 public class SubtitleConverter implements AttributeConverter<List<SubtitleEntry>, String> {
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<List<SubtitleEntry>> SUBTITLES_TYPE = new TypeReference<>() {};
+    private static final ObjectReader SUBTITLES_READER = OBJECT_MAPPER.readerFor(SUBTITLES_TYPE);
+    private static final ObjectWriter SUBTITLES_WRITER = OBJECT_MAPPER.writerFor(SUBTITLES_TYPE);
+
+    private static final Timer SERIALIZATION_TIMER = conversionTimer("serialize", "json");
+    private static final Timer DESERIALIZATION_TIMER = conversionTimer("deserialize", "json");
 
     @SneakyThrows
     @Override
     public String convertToDatabaseColumn(List<SubtitleEntry> o) {
-        return OBJECT_MAPPER.writeValueAsString(o);
+        long start = System.nanoTime();
+        String json = SUBTITLES_WRITER.writeValueAsString(o);
+        SERIALIZATION_TIMER.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return json;
     }
 
     @SneakyThrows
     @Override
     public List<SubtitleEntry> convertToEntityAttribute(String s) {
-        return OBJECT_MAPPER.readValue(s, new TypeReference<>() {});
+        long start = System.nanoTime();
+        List<SubtitleEntry> subtitles = SUBTITLES_READER.readValue(s);
+        DESERIALIZATION_TIMER.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return subtitles;
+    }
+
+    static Timer conversionTimer(String operation, String format) {
+        return Timer.builder("indexer.subtitles.convert")
+                .description("The time it takes to convert subtitles to the database form and back")
+                .tag("operation", operation)
+                .tag("format", format)
+                .register(Metrics.globalRegistry);
     }
 }
@@ -0,0 +1,54 @@
+package net.englab.indexer.models.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+import static jakarta.persistence.EnumType.STRING;
+import static jakarta.persistence.GenerationType.IDENTITY;
+
+/**
+ * Represents a change made to a video while an indexing job was running.
+ * The changes are applied to the live index right away and replayed
+ * onto the index that is being built before it replaces the live one.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class VideoChange {
+
+    /**
+     * The unique identifier of the change. The changes are replayed in the order of their IDs.
+     */
+    @Id
+    @GeneratedValue(strategy = IDENTITY)
+    private Long id;
+
+    /**
+     * The type of the change.
+     */
+    @Enumerated(STRING)
+    private VideoChangeType type;
+
+    /**
+     * The ID of the changed video.
+     */
+    private Long videoId;
+
+    /**
+     * The YouTube video ID the video had before the change.
+     * It's null if the video has just been added.
+     */
+    private String youtubeVideoId;
+
+    /**
+     * The time when the change was made.
+     */
+    private Instant createdAt;
+}
@@ -0,0 +1,15 @@
+package net.englab.indexer.models.entities;
+
+/**
+ * The type of change made to a video.
+ */
+public enum VideoChangeType {
+    /**
+     * The video has been added or updated.
+     */
+    UPSERT,
+    /**
+     * The video has been removed.
+     */
+    DELETE
+}
@@ -0,0 +1,53 @@
+package net.englab.indexer.pipeline;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A bounded blocking queue that connects two stages of a pipeline.
+ * Producers block when the channel is full, which gives us backpressure between the stages.
+ * Once the channel is closed, consumers drain the remaining items and then get null.
+ *
+ * @param <T> the type of the items
+ */
+class Channel<T> {
+    // The marker that is put into the queue when the channel is closed.
+    // Only one marker circulates in the queue: every consumer that takes it puts it back for the others.
+    private static final Object CLOSED = new Object();
+
+    private final BlockingQueue<Object> queue;
+
+    Channel(int capacity) {
+        queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Puts the given item into the channel, waiting if necessary for space to become available.
+     */
+    void put(T item) throws InterruptedException {
+        queue.put(item);
+    }
+
+    /**
+     * Takes the next item from the channel, waiting if necessary until an item becomes available.
+     *
+     * @return the next item or null if the channel is closed and has been drained
+     */
+    @SuppressWarnings("unchecked")
+    T take() throws InterruptedException {
+        Object item = queue.take();
+        if (item == CLOSED) {
+            // there is always room for the marker since we have just taken it
+            queue.put(CLOSED);
+            return null;
+        }
+        return (T) item;
+    }
+
+    /**
+     * Closes the channel. It must be called only once, after all the producers are done.
+     */
+    void close() throws InterruptedException {
+        queue.put(CLOSED);
+    }
+}
@@ -0,0 +1,104 @@
+package net.englab.indexer.pipeline;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tracks the completion of items that are processed out of order by a pipeline.
+ * Every item is identified by a key, and the items must be registered in ascending order of keys.
+ * An item consists of a number of tasks, and it's completed when all its tasks are completed.
+ * The tracker finds the highest key such that all the items up to it are completed,
+ * so the processing can be safely resumed after that key.
+ * <p>
+ * Every item can also carry a number of units, e.g. produced documents.
+ * The units are counted only when the item gets below the watermark.
+ */
+public class CompletionTracker {
+    private final TreeMap<Long, Item> pendingItems = new TreeMap<>();
+
+    private long lastKey;
+    private long completedItems;
+    private long completedUnits;
+
+    /**
+     * Creates a new tracker that continues from the given progress.
+     *
+     * @param progress the progress that has been made so far
+     */
+    public CompletionTracker(Progress progress) {
+        this.lastKey = progress.lastKey();
+        this.completedItems = progress.completedItems();
+        this.completedUnits = progress.completedUnits();
+    }
+
+    /**
+     * Registers a new item.
+     *
+     * @param key   the key of the item, it must be greater than any previously registered key
+     * @param tasks the initial number of tasks of the item
+     */
+    public synchronized void register(long key, int tasks) {
+        if (key <= lastKey || (!pendingItems.isEmpty() && key <= pendingItems.lastKey())) {
+            throw new IllegalArgumentException("The items must be registered in ascending order of keys");
+        }
+        pendingItems.put(key, new Item(tasks));
+    }
+
+    /**
+     * Adds more tasks to the item. Each of them is counted as a unit once the item is completed.
+     * It must be called before the item's remaining tasks are completed.
+     *
+     * @param key   the key of the item
+     * @param tasks the number of tasks to add
+     */
+    public synchronized void addUnits(long key, int tasks) {
+        Item item = pendingItems.get(key);
+        item.remainingTasks += tasks;
+        item.units += tasks;
+    }
+
+    /**
+     * Marks one task of the item as completed.
+     *
+     * @param key the key of the item
+     */
+    public synchronized void complete(long key) {
+        pendingItems.get(key).remainingTasks--;
+        advance();
+    }
+
+    private void advance() {
+        while (!pendingItems.isEmpty() && pendingItems.firstEntry().getValue().remainingTasks == 0) {
+            Map.Entry<Long, Item> entry = pendingItems.pollFirstEntry();
+            lastKey = entry.getKey();
+            completedItems++;
+            completedUnits += entry.getValue().units;
+        }
+    }
+
+    /**
+     * Returns the progress up to the watermark.
+     */
+    public synchronized Progress progress() {
+        return new Progress(lastKey, completedItems, completedUnits);
+    }
+
+    /**
+     * The progress of processing.
+     *
+     * @param lastKey           the key up to which all the items are completed
+     * @param completedItems    the number of completed items
+     * @param completedUnits    the number of units carried by the completed items
+     */
+    public record Progress(long lastKey, long completedItems, long completedUnits) {
+    }
+
+    private static class Item {
+        private int remainingTasks;
+        private long units;
+
+        Item(int remainingTasks) {
+            this.remainingTasks = remainingTasks;
+        }
+    }
+}
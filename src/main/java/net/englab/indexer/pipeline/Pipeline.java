@@ -0,0 +1,225 @@
+package net.englab.indexer.pipeline;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * A staged pipeline that processes items coming from a source stream.
+ * The stages are connected with bounded channels, and every stage runs on its own group of threads,
+ * so all the stages work concurrently and each of them can be scaled independently.
+ * If any stage fails, the whole pipeline is aborted.
+ * <p>
+ * Every stage collects {@link StageStats} while the pipeline is running.
+ * The source is reported as a separate stage, where the busy time is
+ * the time spent reading items and the blocked time is the time spent
+ * waiting for the first stage.
+ * <p>
+ * Usage example:
+ * <pre>
+ * Pipeline.from(videos)
+ *         .stage("parse", 4, 64, ThreadType.VIRTUAL, () -> parser)
+ *         .stage("extract", 8, 64, ThreadType.PLATFORM, () -> extractor)
+ *         .run();
+ * </pre>
+ *
+ * @param <T> the type of the items produced by the last stage
+ */
+public final class Pipeline<T> {
+    private static final String SOURCE_NAME = "source";
+
+    private final Stream<?> source;
+    private final StageStats sourceStats;
+    private final List<StageDefinition> stages;
+
+    private Pipeline(Stream<?> source, StageStats sourceStats, List<StageDefinition> stages) {
+        this.source = source;
+        this.sourceStats = sourceStats;
+        this.stages = stages;
+    }
+
+    /**
+     * Creates a new pipeline that processes items from the given stream.
+     * The stream is consumed by the thread that runs the pipeline.
+     *
+     * @param source the source of items
+     * @return a pipeline without stages
+     */
+    public static <T> Pipeline<T> from(Stream<T> source) {
+        return new Pipeline<>(source, new StageStats(SOURCE_NAME, 1), List.of());
+    }
+
+    /**
+     * Appends a new stage to the pipeline.
+     *
+     * @param name          the name of the stage, it's used to name the threads
+     * @param parallelism   the number of threads that run the stage
+     * @param queueCapacity the capacity of the channel that feeds the stage
+     * @param threadType    the type of threads that run the stage
+     * @param workerFactory the factory that creates a worker for every thread of the stage
+     * @return a new pipeline with the appended stage
+     */
+    public <R> Pipeline<R> stage(String name, int parallelism, int queueCapacity, ThreadType threadType,
+                                 Supplier<? extends StageWorker<? super T, R>> workerFactory) {
+        if (parallelism < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("The parallelism and the queue capacity must be positive");
+        }
+        List<StageDefinition> newStages = new ArrayList<>(stages);
+        StageStats stats = new StageStats(name, parallelism);
+        newStages.add(new StageDefinition(name, parallelism, queueCapacity, threadType, workerFactory, stats));
+        return new Pipeline<>(source, sourceStats, List.copyOf(newStages));
+    }
+
+    /**
+     * Returns the statistics of the source and all the stages of the pipeline in the order they are run.
+     * The statistics are updated while the pipeline is running.
+     *
+     * @return a list of stage statistics
+     */
+    public List<StageStats> stats() {
+        List<StageStats> stats = new ArrayList<>(stages.size() + 1);
+        stats.add(sourceStats);
+        stages.forEach(stage -> stats.add(stage.stats()));
+        return stats;
+    }
+
+    /**
+     * Runs the pipeline and waits until all the items are processed.
+     * The items produced by the last stage are discarded.
+     *
+     * @throws PipelineException if any stage or the source has failed
+     */
+    public void run() {
+        if (stages.isEmpty()) {
+            throw new IllegalStateException("The pipeline does not have any stages");
+        }
+        new Execution().run();
+    }
+
+    private record StageDefinition(String name, int parallelism, int queueCapacity, ThreadType threadType,
+                                   Supplier<? extends StageWorker<?, ?>> workerFactory, StageStats stats) {
+    }
+
+    /**
+     * The state of a single pipeline run.
+     */
+    private class Execution {
+        private final Thread sourceThread = Thread.currentThread();
+        private final List<Thread> threads = new ArrayList<>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        void run() {
+            List<Channel<Object>> channels = stages.stream()
+                    .map(stage -> new Channel<>(stage.queueCapacity()))
+                    .toList();
+            for (int i = 0; i < stages.size(); i++) {
+                Channel<Object> output = i + 1 < channels.size() ? channels.get(i + 1) : null;
+                createWorkerThreads(stages.get(i), channels.get(i), output);
+            }
+            threads.forEach(Thread::start);
+
+            try {
+                Channel<Object> input = channels.getFirst();
+                Iterator<?> iterator = source.iterator();
+                long readStart = System.nanoTime();
+                while (iterator.hasNext()) {
+                    Object item = iterator.next();
+                    long putStart = System.nanoTime();
+                    input.put(item);
+                    long putEnd = System.nanoTime();
+                    sourceStats.addBlocked(putEnd - putStart);
+                    sourceStats.addProcessed(putEnd - readStart);
+                    readStart = putEnd;
+                }
+                input.close();
+            } catch (Throwable e) {
+                fail(e);
+            }
+
+            for (Thread thread : threads) {
+                joinUninterruptibly(thread);
+            }
+
+            Throwable cause = failure.get();
+            if (cause != null) {
+                // the source thread might have been interrupted by the abort
+                Thread.interrupted();
+                throw new PipelineException("The pipeline has been aborted", cause);
+            }
+        }
+
+        private void createWorkerThreads(StageDefinition stage, Channel<Object> input, Channel<Object> output) {
+            ThreadFactory threadFactory = stage.threadType().factory(stage.name());
+            AtomicInteger activeWorkers = new AtomicInteger(stage.parallelism());
+            for (int i = 0; i < stage.parallelism(); i++) {
+                threads.add(threadFactory.newThread(() -> {
+                    try {
+                        runWorker(stage, input, output);
+                        // the last worker of the stage closes the channel for the next stage
+                        if (activeWorkers.decrementAndGet() == 0 && output != null) {
+                            output.close();
+                        }
+                    } catch (Throwable e) {
+                        fail(e);
+                    }
+                }));
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void runWorker(StageDefinition stage, Channel<Object> input, Channel<Object> output) throws Exception {
+            var worker = (StageWorker<Object, Object>) stage.workerFactory().get();
+            StageStats stats = stage.stats();
+            Consumer<Object> emitter = output != null ? item -> emit(output, item, stats) : item -> {};
+            Object item;
+            long takeStart = System.nanoTime();
+            while ((item = input.take()) != null) {
+                long processStart = System.nanoTime();
+                stats.addIdle(processStart - takeStart);
+                worker.process(item, emitter);
+                takeStart = System.nanoTime();
+                stats.addProcessed(takeStart - processStart);
+            }
+            worker.finish(emitter);
+        }
+
+        private static void emit(Channel<Object> output, Object item, StageStats stats) {
+            long putStart = System.nanoTime();
+            try {
+                output.put(item);
+                stats.addBlocked(System.nanoTime() - putStart);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("The pipeline has been aborted");
+            }
+        }
+
+        /**
+         * Records the first failure and interrupts all the threads of the pipeline.
+         */
+        private void fail(Throwable throwable) {
+            if (failure.compareAndSet(null, throwable)) {
+                threads.forEach(Thread::interrupt);
+                sourceThread.interrupt();
+            }
+        }
+
+        private static void joinUninterruptibly(Thread thread) {
+            while (true) {
+                try {
+                    thread.join();
+                    return;
+                } catch (InterruptedException e) {
+                    // keep waiting, the threads are going to stop soon after the abort
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package net.englab.indexer.pipeline;
+
+/**
+ * The exception is thrown when a pipeline has been aborted because one of its stages has failed.
+ */
+public class PipelineException extends RuntimeException {
+    public PipelineException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,66 @@
+package net.englab.indexer.pipeline;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the time the threads of a pipeline stage spend in different states.
+ * The time is summed up over all the threads of the stage. A stage that is mostly busy
+ * is the bottleneck of the pipeline, while a stage that is mostly idle waits for the previous one,
+ * and a stage that is mostly blocked waits for the next one.
+ * The counters are lock-free, so they can be read at any moment while the pipeline is running.
+ */
+public final class StageStats {
+    private final String name;
+    private final int threads;
+    private final LongAdder items = new LongAdder();
+    private final LongAdder processingNanos = new LongAdder();
+    private final LongAdder idleNanos = new LongAdder();
+    private final LongAdder blockedNanos = new LongAdder();
+
+    StageStats(String name, int threads) {
+        this.name = name;
+        this.threads = threads;
+    }
+
+    void addProcessed(long nanos) {
+        items.increment();
+        processingNanos.add(nanos);
+    }
+
+    void addIdle(long nanos) {
+        idleNanos.add(nanos);
+    }
+
+    void addBlocked(long nanos) {
+        blockedNanos.add(nanos);
+    }
+
+    /**
+     * Returns the current values of the counters.
+     */
+    public Snapshot snapshot() {
+        long blocked = blockedNanos.sum();
+        return new Snapshot(
+                name,
+                threads,
+                items.sum(),
+                Duration.ofNanos(Math.max(processingNanos.sum() - blocked, 0)),
+                Duration.ofNanos(idleNanos.sum()),
+                Duration.ofNanos(blocked)
+        );
+    }
+
+    /**
+     * The state of a pipeline stage at some moment.
+     *
+     * @param name      the name of the stage
+     * @param threads   the number of threads that run the stage
+     * @param items     the number of items processed by the stage
+     * @param busy      the time spent processing items
+     * @param idle      the time spent waiting for items from the previous stage or the source
+     * @param blocked   the time spent waiting for the next stage to accept items
+     */
+    public record Snapshot(String name, int threads, long items, Duration busy, Duration idle, Duration blocked) {
+    }
+}
@@ -0,0 +1,31 @@
+package net.englab.indexer.pipeline;
+
+import java.util.function.Consumer;
+
+/**
+ * A worker of a pipeline stage. Every thread of a stage gets its own worker instance,
+ * so workers can safely keep state that is not thread-safe.
+ *
+ * @param <I> the type of the input items
+ * @param <O> the type of the output items
+ */
+@FunctionalInterface
+public interface StageWorker<I, O> {
+
+    /**
+     * Processes the given item. A single input item may produce any number of output items.
+     *
+     * @param item      the input item
+     * @param output    the consumer that passes output items to the next stage
+     */
+    void process(I item, Consumer<O> output) throws Exception;
+
+    /**
+     * Called once when there are no more input items for this worker.
+     * Workers that accumulate items can emit the rest of them here.
+     *
+     * @param output the consumer that passes output items to the next stage
+     */
+    default void finish(Consumer<O> output) throws Exception {
+    }
+}
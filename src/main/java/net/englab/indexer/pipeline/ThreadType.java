@@ -0,0 +1,25 @@
+package net.englab.indexer.pipeline;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The type of threads that run a pipeline stage.
+ */
+public enum ThreadType {
+    /**
+     * Platform threads. They should be used for CPU-bound stages.
+     */
+    PLATFORM,
+
+    /**
+     * Virtual threads. They should be used for stages that spend most of their time waiting for I/O.
+     */
+    VIRTUAL;
+
+    ThreadFactory factory(String name) {
+        return switch (this) {
+            case PLATFORM -> Thread.ofPlatform().name(name + "-", 0).factory();
+            case VIRTUAL -> Thread.ofVirtual().name(name + "-", 0).factory();
+        };
+    }
+}
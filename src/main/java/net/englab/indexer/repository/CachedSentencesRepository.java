@@ -0,0 +1,51 @@
+package net.englab.indexer.repository;
+
+import net.englab.indexer.models.entities.CachedSentences;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+
+/**
+ * This interface provides methods for querying cached sentences from the database.
+ * It extends JpaRepository for standard CRUD operations on cached sentences.
+ */
+public interface CachedSentencesRepository extends JpaRepository<CachedSentences, String> {
+
+    /**
+     * Inserts the cached sentences unless the sentences with the same hash already exist.
+     * The same subtitles can be cached by several threads at once, so a conflict is not an error.
+     *
+     * @param hash      the hash of the subtitles
+     * @param data      the encoded sentences
+     * @param usedAt    the time when the sentences were used
+     */
+    @Modifying
+    @Query(value = """
+            insert into sentence_cache (hash, data, used_at)
+            values (:hash, :data, :usedAt)
+            on conflict do nothing
+            """, nativeQuery = true)
+    void insertIfAbsent(String hash, byte[] data, Instant usedAt);
+
+    /**
+     * Updates the time when the cached sentences were last used.
+     *
+     * @param hash      the hash of the subtitles
+     * @param usedAt    the time when the sentences were used
+     */
+    @Modifying
+    @Query("update CachedSentences cs set cs.usedAt = :usedAt where cs.hash = :hash")
+    void touch(String hash, Instant usedAt);
+
+    /**
+     * Deletes the cached sentences that have not been used since the given time.
+     *
+     * @param time the time before which the sentences must have been used last
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Query("delete from CachedSentences cs where cs.usedAt < :time")
+    int deleteAllUsedBefore(Instant time);
+}
@@ -2,6 +2,12 @@ package net.englab.indexer.repository;
 
 import net.englab.indexer.models.entities.IndexedVideo;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * This interface provides methods for querying indexed video objects
@@ -18,10 +24,58 @@ public interface IndexedVideoRepository extends JpaRepository<IndexedVideo, Long
      */
     void deleteByIndexNameAndYoutubeVideoId(String indexName, String youtubeVideoId);
 
+    /**
+     * Deletes the videos with the given YouTube video IDs.
+     *
+     * @param indexName         the name of the index
+     * @param youtubeVideoIds   the YouTube video IDs
+     */
+    void deleteAllByIndexNameAndYoutubeVideoIdIn(String indexName, Collection<String> youtubeVideoIds);
+
+    /**
+     * Finds the content hashes of all videos that belong to the specified index.
+     *
+     * @param indexName the name of the index
+     * @return a list of content hashes
+     */
+    List<ContentHash> findAllByIndexName(String indexName);
+
+    /**
+     * Finds the content hash of a video by its YouTube video ID.
+     *
+     * @param indexName         the name of the index
+     * @param youtubeVideoId    the YouTube video ID
+     * @return an Optional containing the content hash
+     */
+    Optional<ContentHash> findByIndexNameAndYoutubeVideoId(String indexName, String youtubeVideoId);
+
     /**
      * Deletes all videos that do not belong to the specified index.
      *
      * @param indexName the name of the index
      */
     void deleteAllByIndexNameIsNot(String indexName);
+
+    /**
+     * Deletes the indexed videos of the specified index that belong to
+     * the videos whose IDs are greater than the given one.
+     *
+     * @param indexName the name of the index
+     * @param videoId   the ID of the video after which the indexed videos are deleted
+     */
+    @Modifying
+    @Query("""
+            delete from IndexedVideo iv
+            where iv.indexName = :indexName
+            and iv.youtubeVideoId in (select v.youtubeVideoId from Video v where v.id > :videoId)
+            """)
+    void deleteAllByIndexNameAndVideoIdGreaterThan(String indexName, Long videoId);
+
+    /**
+     * A projection of an indexed video that holds only its content hash.
+     */
+    interface ContentHash {
+        String getYoutubeVideoId();
+        String getContentHash();
+    }
 }
@@ -0,0 +1,22 @@
+package net.englab.indexer.repository;
+
+import net.englab.indexer.models.entities.IndexingJob;
+import net.englab.indexer.models.entities.IndexingJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+/**
+ * This interface provides methods for querying indexing jobs from the database.
+ * It extends JpaRepository for standard CRUD operations on indexing job entities.
+ */
+public interface IndexingJobRepository extends JpaRepository<IndexingJob, Long> {
+
+    /**
+     * Finds the most recent job with the given status.
+     *
+     * @param status the status of the job
+     * @return an Optional containing the found job
+     */
+    Optional<IndexingJob> findFirstByStatusOrderByIdDesc(IndexingJobStatus status);
+}
@@ -0,0 +1,28 @@
+package net.englab.indexer.repository;
+
+import net.englab.indexer.models.entities.VideoChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+/**
+ * This interface provides methods for querying video changes from the database.
+ * It extends JpaRepository for standard CRUD operations on video change entities.
+ */
+public interface VideoChangeRepository extends JpaRepository<VideoChange, Long> {
+
+    /**
+     * Finds all changes whose IDs are greater than the given one ordered by ID.
+     *
+     * @param id the ID after which the changes are searched
+     * @return a list of changes
+     */
+    List<VideoChange> findByIdGreaterThanOrderByIdAsc(Long id);
+
+    /**
+     * Deletes all changes whose IDs are less than or equal to the given one.
+     *
+     * @param id the ID of the last change to be deleted
+     */
+    void deleteAllByIdLessThanEqual(Long id);
+}
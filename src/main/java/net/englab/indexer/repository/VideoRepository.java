@@ -1,8 +1,12 @@
 package net.englab.indexer.repository;
 
 import net.englab.indexer.models.entities.Video;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
 
 /**
  * This interface provides methods for querying video objects
@@ -10,4 +14,24 @@ import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
  * JpaSpecificationExecutor for advanced queries on video entities.
  */
 public interface VideoRepository extends JpaRepository<Video, Long>, JpaSpecificationExecutor<Video> {
+
+    /**
+     * Finds the videos whose IDs are greater than the given one ordered by ID.
+     * It's used for keyset pagination, which, unlike offset pagination,
+     * doesn't slow down as we move further through the table.
+     *
+     * @param id    the ID after which the videos are fetched
+     * @param limit the maximum number of videos to fetch
+     * @return a list of videos ordered by ID
+     */
+    List<Video> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    /**
+     * Finds the YouTube video IDs of the videos whose IDs are greater than the given one.
+     *
+     * @param id the ID after which the videos are searched
+     * @return a list of YouTube video IDs
+     */
+    @Query("select v.youtubeVideoId from Video v where v.id > :id")
+    List<String> findYoutubeVideoIdsByIdGreaterThan(Long id);
 }
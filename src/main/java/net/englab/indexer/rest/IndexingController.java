@@ -1,8 +1,8 @@
 package net.englab.indexer.rest;
 
 import lombok.RequiredArgsConstructor;
-import net.englab.common.search.models.indexing.IndexingInfo;
 import net.englab.indexer.exceptions.IndexingConflictException;
+import net.englab.indexer.models.dto.IndexingStatusDto;
 import net.englab.indexer.services.VideoIndexer;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -37,12 +37,31 @@ public class IndexingController {
     }
 
     /**
-     * Retrieves the current indexing status.
+     * Starts a new incremental indexing job that reindexes only
+     * the videos that have been added, changed, or deleted.
+     *
+     * @return a status message after starting an indexing job
+     */
+    @PostMapping("/index/incremental")
+    public String indexIncrementally() {
+        try {
+            videoIndexer.startIncrementalIndexing();
+            return "Incremental indexing has been started";
+        } catch (IndexingConflictException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves the current indexing status along with the progress of the indexing job.
      *
      * @return an indexing status
      */
     @GetMapping("/status")
-    public IndexingInfo getStatus() {
-        return videoIndexer.getIndexingStatus();
+    public IndexingStatusDto getStatus() {
+        return new IndexingStatusDto(
+                videoIndexer.getIndexingStatus(),
+                videoIndexer.getIndexingProgress().orElse(null)
+        );
     }
 }
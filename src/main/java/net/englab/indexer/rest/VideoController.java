@@ -2,7 +2,6 @@ package net.englab.indexer.rest;
 
 import lombok.RequiredArgsConstructor;
 import net.englab.common.search.models.common.EnglishVariety;
-import net.englab.indexer.exceptions.IndexingConflictException;
 import net.englab.indexer.exceptions.VideoAlreadyExistsException;
 import net.englab.indexer.exceptions.VideoNotFoundException;
 import net.englab.indexer.models.dto.VideoDto;
@@ -57,7 +56,7 @@ public class VideoController {
         try {
             videoIndexer.add(video.videoId(), video.variety(), video.srt());
             return "The video has been added";
-        } catch (IndexingConflictException | VideoAlreadyExistsException e) {
+        } catch (VideoAlreadyExistsException e) {
             throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
         }
     }
@@ -74,8 +73,6 @@ public class VideoController {
         try {
             videoIndexer.update(id, video.videoId(), video.variety(), video.srt());
             return "The video has been updated";
-        } catch (IndexingConflictException e) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
         } catch (VideoNotFoundException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
         }
@@ -92,8 +89,6 @@ public class VideoController {
         try {
             videoIndexer.remove(id);
             return "The video has been removed";
-        } catch (IndexingConflictException e) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
         } catch (VideoNotFoundException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
         }
@@ -3,9 +3,16 @@ package net.englab.indexer.services;
 import lombok.RequiredArgsConstructor;
 import net.englab.indexer.models.entities.IndexedVideo;
 import net.englab.indexer.repository.IndexedVideoRepository;
+import net.englab.indexer.repository.IndexedVideoRepository.ContentHash;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
 /**
  * A storage service for indexed videos. It provides basic operations
  * such as saving, deleting, and searching subtitles.
@@ -26,6 +33,30 @@ public class IndexedVideoStorage {
         indexedVideoRepository.save(indexedVideo);
     }
 
+    /**
+     * Saves the given videos to the storage in a single transaction.
+     * The inserts are sent to the database in JDBC batches.
+     *
+     * @param indexedVideos the videos that need to be saved
+     */
+    @Transactional
+    public void saveAll(List<IndexedVideo> indexedVideos) {
+        indexedVideoRepository.saveAll(indexedVideos);
+    }
+
+    /**
+     * Replaces a video with a new version of it in a single transaction.
+     *
+     * @param indexName         the name of the index
+     * @param youtubeVideoId    the YouTube video ID of the video that needs to be replaced
+     * @param indexedVideo      the new version of the video
+     */
+    @Transactional
+    public void replace(String indexName, String youtubeVideoId, IndexedVideo indexedVideo) {
+        indexedVideoRepository.deleteByIndexNameAndYoutubeVideoId(indexName, youtubeVideoId);
+        indexedVideoRepository.save(indexedVideo);
+    }
+
     /**
      * Deletes a video by its YouTube video ID.
      *
@@ -37,6 +68,58 @@ public class IndexedVideoStorage {
         indexedVideoRepository.deleteByIndexNameAndYoutubeVideoId(indexName, youtubeVideoId);
     }
 
+    /**
+     * Deletes the videos with the given YouTube video IDs.
+     *
+     * @param indexName         the name of the index
+     * @param youtubeVideoIds   the YouTube video IDs
+     */
+    @Transactional
+    public void deleteAll(String indexName, Collection<String> youtubeVideoIds) {
+        indexedVideoRepository.deleteAllByIndexNameAndYoutubeVideoIdIn(indexName, youtubeVideoIds);
+    }
+
+    /**
+     * Finds the content hashes of all videos that belong to the specified index.
+     * The videos that have been indexed before the hashes were introduced are mapped to null.
+     *
+     * @param indexName the name of the index
+     * @return the YouTube video IDs mapped to the content hashes
+     */
+    @Transactional(readOnly = true)
+    public Map<String, String> findContentHashes(String indexName) {
+        Map<String, String> contentHashes = new HashMap<>();
+        for (ContentHash contentHash : indexedVideoRepository.findAllByIndexName(indexName)) {
+            contentHashes.put(contentHash.getYoutubeVideoId(), contentHash.getContentHash());
+        }
+        return contentHashes;
+    }
+
+    /**
+     * Finds the content hash of a video by its YouTube video ID.
+     *
+     * @param indexName         the name of the index
+     * @param youtubeVideoId    the YouTube video ID
+     * @return an Optional containing the content hash, it's empty if the video has no hash
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> findContentHash(String indexName, String youtubeVideoId) {
+        return indexedVideoRepository.findByIndexNameAndYoutubeVideoId(indexName, youtubeVideoId)
+                .map(ContentHash::getContentHash);
+    }
+
+    /**
+     * Deletes the indexed videos of the specified index that belong to
+     * the videos whose IDs are greater than the given one.
+     *
+     * @param indexName the name of the index
+     * @param videoId   the ID of the video after which the indexed videos are deleted
+     */
+    @Transactional
+    public void deleteAfter(String indexName, Long videoId) {
+        indexedVideoRepository.deleteAllByIndexNameAndVideoIdGreaterThan(indexName, videoId);
+    }
+
     /**
      * Removes stale videos that are left from previous indexations.
      *
@@ -0,0 +1,75 @@
+package net.englab.indexer.services;
+
+import lombok.RequiredArgsConstructor;
+import net.englab.indexer.models.entities.IndexingJob;
+import net.englab.indexer.models.entities.IndexingJobStatus;
+import net.englab.indexer.pipeline.CompletionTracker.Progress;
+import net.englab.indexer.repository.IndexingJobRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static net.englab.indexer.models.entities.IndexingJobStatus.*;
+
+/**
+ * A storage service for the state of full reindexing jobs.
+ */
+@Service
+@RequiredArgsConstructor
+public class IndexingJobStorage {
+
+    private final IndexingJobRepository indexingJobRepository;
+
+    /**
+     * Creates a new running job.
+     *
+     * @param indexName the name of the index that is going to be built by the job
+     * @param startTime the time when the job was started
+     * @return the created job
+     */
+    @Transactional
+    public IndexingJob create(String indexName, Instant startTime) {
+        IndexingJob job = new IndexingJob(null, indexName, RUNNING, startTime, 0L, 0L, 0L);
+        return indexingJobRepository.save(job);
+    }
+
+    /**
+     * Finds the job that has been interrupted and has not been finished.
+     *
+     * @return an Optional containing the unfinished job
+     */
+    @Transactional(readOnly = true)
+    public Optional<IndexingJob> findUnfinished() {
+        return indexingJobRepository.findFirstByStatusOrderByIdDesc(RUNNING);
+    }
+
+    /**
+     * Saves the progress of the given job.
+     *
+     * @param job       the job
+     * @param progress  the progress that has been acknowledged
+     * @return the updated job
+     */
+    @Transactional
+    public IndexingJob saveCheckpoint(IndexingJob job, Progress progress) {
+        job.setLastVideoId(progress.lastKey());
+        job.setIndexedVideos(progress.completedItems());
+        job.setIndexedDocs(progress.completedUnits());
+        return indexingJobRepository.save(job);
+    }
+
+    /**
+     * Updates the status of the given job.
+     *
+     * @param job       the job
+     * @param status    the new status
+     * @return the updated job
+     */
+    @Transactional
+    public IndexingJob updateStatus(IndexingJob job, IndexingJobStatus status) {
+        job.setStatus(status);
+        return indexingJobRepository.save(job);
+    }
+}
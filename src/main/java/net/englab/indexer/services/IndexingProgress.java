@@ -0,0 +1,149 @@
+package net.englab.indexer.services;
+
+import net.englab.indexer.pipeline.StageStats;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The live progress of an indexing job. The counters are updated by the pipeline threads
+ * and the bulk response handlers without any locking, so they are cheap to maintain
+ * and can be read at any moment to report the throughput of the job and estimate its completion time.
+ */
+public class IndexingProgress {
+    // the time window over which the current rate of documents is measured
+    private static final long RATE_WINDOW_NANOS = Duration.ofSeconds(10).toNanos();
+
+    private final long startTime = System.nanoTime();
+    private final long totalVideos;
+    private final long initialVideos;
+    private final LongAdder videos = new LongAdder();
+    private final LongAdder sentences = new LongAdder();
+    private final LongAdder acknowledgedDocs = new LongAdder();
+    private final LongAdder sentBytes = new LongAdder();
+    private final LongAdder retriedDocs = new LongAdder();
+    private final AtomicReference<RateSample> rateSample = new AtomicReference<>(new RateSample(startTime, 0, -1));
+    private volatile List<StageStats> stages = List.of();
+
+    /**
+     * Creates a new progress.
+     *
+     * @param totalVideos   the total number of videos the job is going to go through
+     * @param initialVideos the number of videos that have been processed before, e.g. by an interrupted job
+     */
+    public IndexingProgress(long totalVideos, long initialVideos) {
+        this.totalVideos = totalVideos;
+        this.initialVideos = initialVideos;
+    }
+
+    /**
+     * Counts a video that has been read from the database, whether it needs to be indexed or not.
+     */
+    public void addVideo() {
+        videos.increment();
+    }
+
+    /**
+     * Counts the sentences extracted from a video.
+     */
+    public void addSentences(int count) {
+        sentences.add(count);
+    }
+
+    /**
+     * Counts the documents that have been acknowledged by Elasticsearch.
+     */
+    public void addAcknowledgedDocs(int count) {
+        acknowledgedDocs.add(count);
+    }
+
+    /**
+     * Counts the bytes of documents that have been sent to Elasticsearch, including the resent ones.
+     */
+    public void addSentBytes(long bytes) {
+        sentBytes.add(bytes);
+    }
+
+    /**
+     * Counts the documents that are going to be resent to Elasticsearch.
+     */
+    public void addRetriedDocs(int count) {
+        retriedDocs.add(count);
+    }
+
+    /**
+     * Sets the statistics of the pipeline stages that process the videos.
+     */
+    public void setStages(List<StageStats> stages) {
+        this.stages = List.copyOf(stages);
+    }
+
+    /**
+     * Returns the current state of the progress.
+     */
+    public Snapshot snapshot() {
+        long now = System.nanoTime();
+        long processedVideos = videos.sum();
+        long docs = acknowledgedDocs.sum();
+        Duration elapsed = Duration.ofNanos(now - startTime);
+        Duration eta = null;
+        if (processedVideos > 0 && totalVideos >= initialVideos + processedVideos) {
+            long remainingVideos = totalVideos - initialVideos - processedVideos;
+            eta = elapsed.multipliedBy(remainingVideos).dividedBy(processedVideos);
+        }
+        return new Snapshot(
+                initialVideos + processedVideos,
+                totalVideos,
+                sentences.sum(),
+                docs,
+                sentBytes.sum(),
+                retriedDocs.sum(),
+                docsPerSecond(now, docs),
+                elapsed,
+                eta,
+                stages.stream().map(StageStats::snapshot).toList()
+        );
+    }
+
+    /**
+     * Calculates the rate of acknowledged documents over the last complete time window.
+     * Until the first window is complete, the average rate since the start is returned.
+     */
+    private double docsPerSecond(long now, long docs) {
+        RateSample sample = rateSample.get();
+        long elapsed = now - sample.time();
+        if (elapsed >= RATE_WINDOW_NANOS) {
+            double rate = (docs - sample.docs()) * 1e9 / elapsed;
+            rateSample.compareAndSet(sample, new RateSample(now, docs, rate));
+            return rate;
+        }
+        if (sample.rate() < 0) {
+            return elapsed > 0 ? (docs - sample.docs()) * 1e9 / elapsed : 0;
+        }
+        return sample.rate();
+    }
+
+    private record RateSample(long time, long docs, double rate) {
+    }
+
+    /**
+     * The state of an indexing job at some moment.
+     *
+     * @param processedVideos   the number of videos that have been read from the database
+     * @param totalVideos       the total number of videos the job is going to go through
+     * @param sentences         the number of sentences extracted from the videos
+     * @param acknowledgedDocs  the number of documents acknowledged by Elasticsearch
+     * @param sentBytes         the number of bytes sent to Elasticsearch
+     * @param retriedDocs       the number of documents that have been resent to Elasticsearch
+     * @param docsPerSecond     the current rate of acknowledged documents
+     * @param elapsed           the time since the job was started
+     * @param eta               the estimated time until all the videos are processed, if it's known
+     * @param stages            the statistics of the pipeline stages
+     */
+    public record Snapshot(long processedVideos, long totalVideos, long sentences, long acknowledgedDocs,
+                           long sentBytes, long retriedDocs, double docsPerSecond, Duration elapsed, Duration eta,
+                           List<StageStats.Snapshot> stages) {
+    }
+}
@@ -0,0 +1,78 @@
+package net.englab.indexer.services;
+
+import lombok.RequiredArgsConstructor;
+import net.englab.indexer.configs.IndexerProperties;
+import net.englab.indexer.models.entities.CachedSentences;
+import net.englab.indexer.repository.CachedSentencesRepository;
+import net.englab.indexer.subtitles.ExtractedSentence;
+import net.englab.indexer.subtitles.ExtractedSentenceCodec;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A persistent cache of the sentences extracted from subtitles. The sentences are stored
+ * by the hash of the subtitles, so unchanged subtitles are not split into sentences again.
+ * <p>
+ * The cache entries are evicted by the time they were last used. A full reindex uses
+ * the entries of all the existing videos, so after it completes, the entries that have not
+ * been used by it no longer belong to any video and can be removed.
+ */
+@Service
+@RequiredArgsConstructor
+public class SentenceCache {
+
+    private final IndexerProperties properties;
+    private final CachedSentencesRepository cachedSentencesRepository;
+
+    /**
+     * Finds the cached sentences by the hash of the subtitles.
+     *
+     * @param hash the hash of the subtitles
+     * @return an Optional containing the sentences, it's empty if they are not cached
+     */
+    @Transactional
+    public Optional<List<ExtractedSentence>> find(String hash) {
+        if (!properties.cache().enabled()) {
+            return Optional.empty();
+        }
+        Optional<CachedSentences> cachedSentences = cachedSentencesRepository.findById(hash);
+        cachedSentences.ifPresent(cached -> {
+            Instant now = Instant.now();
+            if (cached.getUsedAt().isBefore(now.minus(properties.cache().touchInterval()))) {
+                cachedSentencesRepository.touch(hash, now);
+            }
+        });
+        return cachedSentences.map(cached -> ExtractedSentenceCodec.decode(cached.getData()));
+    }
+
+    /**
+     * Puts the sentences to the cache unless they are already there.
+     *
+     * @param hash      the hash of the subtitles
+     * @param sentences the sentences extracted from the subtitles
+     */
+    @Transactional
+    public void put(String hash, List<ExtractedSentence> sentences) {
+        if (!properties.cache().enabled()) {
+            return;
+        }
+        cachedSentencesRepository.insertIfAbsent(hash, ExtractedSentenceCodec.encode(sentences), Instant.now());
+    }
+
+    /**
+     * Removes the cached sentences that have not been used since the given time.
+     * The usage time is updated only once per touch interval, so the interval is subtracted
+     * from the given time to keep the entries that have been used without being touched.
+     *
+     * @param time the time since which the sentences that should be kept have been used
+     * @return the number of removed entries
+     */
+    @Transactional
+    public int evictUnusedSince(Instant time) {
+        return cachedSentencesRepository.deleteAllUsedBefore(time.minus(properties.cache().touchInterval()));
+    }
+}
@@ -0,0 +1,54 @@
+package net.englab.indexer.services;
+
+import lombok.RequiredArgsConstructor;
+import net.englab.indexer.models.entities.VideoChange;
+import net.englab.indexer.models.entities.VideoChangeType;
+import net.englab.indexer.repository.VideoChangeRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A storage service for the changes made to videos while indexing jobs are running.
+ */
+@Service
+@RequiredArgsConstructor
+public class VideoChangeStorage {
+
+    private final VideoChangeRepository videoChangeRepository;
+
+    /**
+     * Records a new change.
+     *
+     * @param type              the type of the change
+     * @param videoId           the ID of the changed video
+     * @param youtubeVideoId    the YouTube video ID the video had before the change
+     */
+    @Transactional
+    public void record(VideoChangeType type, Long videoId, String youtubeVideoId) {
+        videoChangeRepository.save(new VideoChange(null, type, videoId, youtubeVideoId, Instant.now()));
+    }
+
+    /**
+     * Finds all changes whose IDs are greater than the given one in the order they were made.
+     *
+     * @param id the ID after which the changes are searched
+     * @return a list of changes
+     */
+    @Transactional(readOnly = true)
+    public List<VideoChange> findAfter(Long id) {
+        return videoChangeRepository.findByIdGreaterThanOrderByIdAsc(id);
+    }
+
+    /**
+     * Deletes all changes up to the given one, including it.
+     *
+     * @param id the ID of the last change to be deleted
+     */
+    @Transactional
+    public void deleteUpTo(Long id) {
+        videoChangeRepository.deleteAllByIdLessThanEqual(id);
+    }
+}
@@ -1,48 +1,69 @@
 package net.englab.indexer.services;
 
 import co.elastic.clients.elasticsearch._types.mapping.*;
-import co.elastic.clients.elasticsearch.core.BulkResponse;
 import co.elastic.clients.json.JsonData;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import net.englab.common.search.models.common.EnglishVariety;
-import net.englab.common.search.models.elastic.VideoFragmentDocument;
 import net.englab.common.search.models.indexing.IndexingInfo;
-import net.englab.common.search.models.subtitles.SubtitleEntry;
-import net.englab.common.search.models.subtitles.SubtitleSentence;
+import net.englab.indexer.configs.IndexerProperties;
 import net.englab.indexer.exceptions.IndexingConflictException;
 import net.englab.indexer.exceptions.VideoAlreadyExistsException;
 import net.englab.indexer.exceptions.VideoNotFoundException;
 import net.englab.indexer.models.elastic.VideoIndexMetadata;
-import net.englab.indexer.models.entities.IndexedVideo;
+import net.englab.indexer.models.entities.IndexingJob;
 import net.englab.indexer.models.entities.Video;
+import net.englab.indexer.models.entities.VideoChange;
+import net.englab.indexer.models.entities.VideoChangeType;
+import net.englab.indexer.pipeline.CompletionTracker;
+import net.englab.indexer.pipeline.CompletionTracker.Progress;
 import net.englab.indexer.services.elastic.ElasticDocumentManager;
 import net.englab.indexer.services.elastic.ElasticIndexManager;
-import net.englab.indexer.subtitles.SrtSubtitles;
-import net.englab.indexer.subtitles.SubtitleSentenceExtractor;
-import net.englab.indexer.text.TextTransformations;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
-import java.util.*;
-import java.util.concurrent.Future;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
 
 import static net.englab.common.search.models.elastic.VideoIndexProperties.*;
+import static net.englab.indexer.models.entities.IndexingJobStatus.ABANDONED;
+import static net.englab.indexer.models.entities.IndexingJobStatus.COMPLETED;
+import static net.englab.indexer.models.entities.VideoChangeType.DELETE;
+import static net.englab.indexer.models.entities.VideoChangeType.UPSERT;
 import static net.englab.indexer.repository.VideoSpecifications.byId;
 import static net.englab.indexer.repository.VideoSpecifications.byYoutubeVideoId;
 
 /**
  * A video indexer service that allows us to index, update, and remove videos one-by-one
  * as well as reindex the full dataset entirely by starting an indexing job.
+ * <p>
+ * The progress of an indexing job is saved periodically, so a job that has been
+ * interrupted by a failure or a restart is resumed from its last checkpoint
+ * instead of being started from scratch.
+ * <p>
+ * Videos can be edited while an indexing job is running. The edits are applied
+ * to the live index right away and recorded in a change log, which is replayed
+ * onto the index built by the job right before it replaces the live one.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class VideoIndexer {
-    private static final int BULK_SIZE = 10_000;
+    // the maximum number of videos which documents are removed by a single request
+    private static final int DELETE_CHUNK_SIZE = 1000;
+
     private static final Map<String, Property> VIDEO_INDEX_PROPERTIES = Map.of(
             YOUTUBE_VIDEO_ID, KeywordProperty.of(b -> b)._toProperty(),
             ENGLISH_VARIETY, KeywordProperty.of(b -> b)._toProperty(),
@@ -51,15 +72,24 @@ public class VideoIndexer {
             SENTENCE_RANGE_MAP, ObjectProperty.of(b -> b.enabled(false))._toProperty()
     );
 
+    private final IndexerProperties properties;
     private final VideoStorage videoStorage;
     private final IndexedVideoStorage indexedVideoStorage;
+    private final IndexingJobStorage indexingJobStorage;
+    private final VideoChangeStorage videoChangeStorage;
 
     private final ElasticIndexManager indexManager;
     private final ElasticDocumentManager documentManager;
-    private final SubtitleSentenceExtractor sentenceExtractor = new SubtitleSentenceExtractor();
+    private final VideoIndexingPipeline indexingPipeline;
+    private final SentenceCache sentenceCache;
 
     private IndexingInfo indexingInfo = IndexingInfo.none();
+    private volatile IndexingProgress indexingProgress;
     private final AtomicBoolean isRunning = new AtomicBoolean(false);
+    // video edits hold the read lock, so they can run concurrently with each other,
+    // while listing the committed changes, the last replay of the change log, and the alias swap
+    // hold the write lock
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
 
     /**
      * Adds a new video.
@@ -67,26 +97,28 @@ public class VideoIndexer {
      * @param youtubeVideoId    the YouTube video ID
      * @param variety           the variety of English used in the video
      * @param srt               the subtitles for the video in SRT format
-     * @throws IndexingConflictException if an indexing job is running
      * @throws VideoAlreadyExistsException if the video already exists
      */
     public void add(String youtubeVideoId, EnglishVariety variety, String srt) {
-        if (isRunning.get()) {
-            throw new IndexingConflictException("A video cannot be indexed while an indexing job is running");
-        }
-        videoStorage.findAny(byYoutubeVideoId(youtubeVideoId)).ifPresent(video -> {
-            throw new VideoAlreadyExistsException("The video already exists.");
-        });
-        Video video = new Video(null, youtubeVideoId, variety, srt);
-        Long id = videoStorage.save(video);
-        log.info("A new video with ID={} has been added", id);
+        swapLock.readLock().lock();
         try {
-            indexManager.getIndexName(ALIAS).ifPresent(indexName ->
-                    indexVideos(indexName, List.of(video))
-            );
-        } catch (Exception e) {
-            log.error("Exception occurred during video indexing", e);
-            throw new RuntimeException(e);
+            videoStorage.findAny(byYoutubeVideoId(youtubeVideoId)).ifPresent(video -> {
+                throw new VideoAlreadyExistsException("The video already exists.");
+            });
+            Video video = new Video(null, youtubeVideoId, variety, srt);
+            Long id = videoStorage.save(video);
+            log.info("A new video with ID={} has been added", id);
+            recordChange(UPSERT, id, null);
+            try {
+                indexManager.getIndexName(ALIAS).ifPresent(indexName ->
+                        indexVideo(indexName, video)
+                );
+            } catch (Exception e) {
+                log.error("Exception occurred during video indexing", e);
+                throw new RuntimeException(e);
+            }
+        } finally {
+            swapLock.readLock().unlock();
         }
     }
 
@@ -97,56 +129,77 @@ public class VideoIndexer {
      * @param youtubeVideoId    the updated YouTube video ID
      * @param variety           the updated variety of English used in the video
      * @param srt               the updated subtitles for the video in SRT format
-     * @throws IndexingConflictException if an indexing job is running
      * @throws VideoNotFoundException if the video has not been found
      */
     public void update(Long id, String youtubeVideoId, EnglishVariety variety, String srt) {
-        if (isRunning.get()) {
-            throw new IndexingConflictException("A video cannot be updated while an indexing job is running");
+        swapLock.readLock().lock();
+        try {
+            videoStorage.findAny(byId(id)).ifPresentOrElse(video -> {
+                String oldYoutubeVideoId = video.getYoutubeVideoId();
+                video.setYoutubeVideoId(youtubeVideoId);
+                video.setVariety(variety);
+                video.setSrt(srt);
+                videoStorage.save(video);
+                recordChange(UPSERT, id, oldYoutubeVideoId);
+                try {
+                    indexManager.getIndexName(ALIAS).ifPresent(indexName -> {
+                        if (!indexingPipeline.update(indexName, oldYoutubeVideoId, video)) {
+                            log.info("The content of the video with ID={} has not changed, so it has not been reindexed",
+                                    id);
+                        }
+                    });
+                } catch (Exception e) {
+                    log.error("Exception occurred during video updating", e);
+                    throw new RuntimeException(e);
+                }
+            }, () -> {
+                throw new VideoNotFoundException("The video has not been found and cannot be modified.");
+            });
+        } finally {
+            swapLock.readLock().unlock();
         }
-        videoStorage.findAny(byId(id)).ifPresentOrElse(video -> {
-            video.setYoutubeVideoId(youtubeVideoId);
-            video.setVariety(variety);
-            video.setSrt(srt);
-            videoStorage.save(video);
-            documentManager.deleteByFieldValue(ALIAS, YOUTUBE_VIDEO_ID, video.getYoutubeVideoId());
-            try {
-                indexVideos(ALIAS, List.of(video));
-            } catch (Exception e) {
-                log.error("Exception occurred during video updating", e);
-                throw new RuntimeException(e);
-            }
-        }, () -> {
-            throw new VideoNotFoundException("The video has not been found and cannot be modified.");
-        });
     }
 
     /**
      * Removes a video by the specified ID.
      *
      * @param id the ID of the video we want to remove
-     * @throws IndexingConflictException if an indexing job is running
      * @throws VideoNotFoundException if the video has not been found
      */
     public void remove(Long id) {
-        if (isRunning.get()) {
-            throw new IndexingConflictException("A video cannot be removed while an indexing job is running");
-        }
+        swapLock.readLock().lock();
         try {
-            videoStorage.findAny(byId(id)).ifPresentOrElse(video -> {
-                String youtubeVideoId = video.getYoutubeVideoId();
-                documentManager.deleteByFieldValue(ALIAS, YOUTUBE_VIDEO_ID, youtubeVideoId);
-                indexManager.getIndexName(ALIAS).ifPresent(indexName ->
-                        indexedVideoStorage.delete(indexName, youtubeVideoId)
-                );
-            }, () -> {
-                throw new VideoNotFoundException("The video has not been found and cannot be removed.");
-            });
-        } catch (Exception e) {
-            log.error("Exception occurred during video removal", e);
-            throw new RuntimeException(e);
+            try {
+                videoStorage.findAny(byId(id)).ifPresentOrElse(video -> {
+                    String youtubeVideoId = video.getYoutubeVideoId();
+                    documentManager.deleteByFieldValue(ALIAS, YOUTUBE_VIDEO_ID, youtubeVideoId);
+                    indexManager.getIndexName(ALIAS).ifPresent(indexName ->
+                            indexedVideoStorage.delete(indexName, youtubeVideoId)
+                    );
+                    // the change is recorded after the video is deleted, otherwise a replay
+                    // could find the video in between and index it again
+                    videoStorage.deleteById(id);
+                    recordChange(DELETE, id, youtubeVideoId);
+                }, () -> {
+                    throw new VideoNotFoundException("The video has not been found and cannot be removed.");
+                });
+            } catch (Exception e) {
+                log.error("Exception occurred during video removal", e);
+                throw new RuntimeException(e);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records the change if an indexing job is running or has been interrupted,
+     * so the change can be replayed onto the index built by the job.
+     */
+    private void recordChange(VideoChangeType type, Long videoId, String youtubeVideoId) {
+        if (isRunning.get() || indexingJobStorage.findUnfinished().isPresent()) {
+            videoChangeStorage.record(type, videoId, youtubeVideoId);
         }
-        videoStorage.deleteById(id);
     }
 
     /**
@@ -166,22 +219,44 @@ public class VideoIndexer {
     }
 
     /**
-     * Starts a new indexing job.
+     * Returns the progress of the running indexing job or the last one
+     * that has been run since the application was started.
+     *
+     * @return an Optional containing the progress of the job
+     */
+    public Optional<IndexingProgress.Snapshot> getIndexingProgress() {
+        return Optional.ofNullable(indexingProgress).map(IndexingProgress::snapshot);
+    }
+
+    /**
+     * Starts a new indexing job. If there is an unfinished job, it's resumed instead.
      *
      * @throws IndexingConflictException if an indexing job has been already started
      */
     public void startIndexing() {
+        startJob(this::runFullIndexing);
+    }
+
+    /**
+     * Starts a new incremental indexing job that applies only new, changed, and deleted videos
+     * to the current index. The videos are compared by their content hashes.
+     * If the current index cannot be updated incrementally, e.g. it has been built
+     * by another version of the pipeline, the full dataset is reindexed instead.
+     *
+     * @throws IndexingConflictException if an indexing job has been already started
+     */
+    public void startIncrementalIndexing() {
+        startJob(this::runIncrementalIndexing);
+    }
+
+    private void startJob(Runnable job) {
         if (isRunning.getAndSet(true)) {
             throw new IndexingConflictException("A new indexing job cannot be started if one is already running");
         }
         indexingInfo = IndexingInfo.started(Instant.now());
         Thread.startVirtualThread(() -> {
             try {
-                log.info("Full indexing has been started.");
-                log.info("Start reading videos from the database...");
-                List<Video> videos = videoStorage.findAll();
-                log.info("Start indexing the videos...");
-                startFullIndexing(videos);
+                job.run();
                 log.info("Indexing has been finished successfully.");
             } catch (Throwable throwable) {
                 indexingInfo = IndexingInfo.failed(indexingInfo.startTime(), Instant.now(), throwable.getMessage());
@@ -193,89 +268,295 @@ public class VideoIndexer {
         });
     }
 
-    @SneakyThrows
-    private void startFullIndexing(Collection<Video> videos) {
-        Instant startTime = Instant.now();
+    private void runFullIndexing() {
+        IndexingJob job = findResumableJob().orElseGet(this::createJob);
+        indexingInfo = IndexingInfo.started(job.getStartTime());
+        startFullIndexing(job);
+    }
 
-        Optional<String> oldIndexName = indexManager.getIndexName(ALIAS);
+    private void runIncrementalIndexing() {
+        Optional<String> indexName = indexManager.getIndexName(ALIAS);
+        if (indexName.isEmpty() || indexingJobStorage.findUnfinished().isPresent()) {
+            log.info("There is no complete index to be updated, so the full dataset is going to be reindexed.");
+            runFullIndexing();
+            return;
+        }
+        Integer pipelineVersion = new VideoIndexMetadata(indexManager.getMetadata(indexName.get())).pipelineVersion();
+        if (!Objects.equals(pipelineVersion, VideoIndexingPipeline.VERSION)) {
+            log.info("The index has been built by the pipeline version {}, but the current one is {}. "
+                    + "The full dataset is going to be reindexed.", pipelineVersion, VideoIndexingPipeline.VERSION);
+            runFullIndexing();
+            return;
+        }
+        startIncrementalIndexing(indexName.get());
+    }
 
+    /**
+     * Resumes the indexing job that has been interrupted by the shutdown of the application.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeIndexing() {
+        if (indexingJobStorage.findUnfinished().isPresent()) {
+            log.info("An unfinished indexing job has been found.");
+            startIndexing();
+        }
+    }
+
+    private Optional<IndexingJob> findResumableJob() {
+        Optional<IndexingJob> unfinishedJob = indexingJobStorage.findUnfinished();
+        if (unfinishedJob.isEmpty()) {
+            return Optional.empty();
+        }
+        IndexingJob job = unfinishedJob.get();
+        if (!indexManager.exists(job.getIndexName())) {
+            indexingJobStorage.updateStatus(job, ABANDONED);
+            log.warn("The index '{}' of the unfinished job has gone, so the job has been abandoned.", job.getIndexName());
+            return Optional.empty();
+        }
+        log.info("Resuming the indexing of '{}' after the video with ID={}.", job.getIndexName(), job.getLastVideoId());
+        removeUnacknowledgedVideos(job.getIndexName(), job.getLastVideoId());
+        return unfinishedJob;
+    }
+
+    /**
+     * Removes everything that has been indexed after the checkpoint,
+     * so the videos after it can be indexed again without duplicates.
+     */
+    private void removeUnacknowledgedVideos(String indexName, Long lastVideoId) {
+        // the documents must be visible for search to be deleted by a query
+        indexManager.refresh(indexName);
+        deleteDocuments(indexName, videoStorage.findYoutubeVideoIdsAfter(lastVideoId));
+        indexedVideoStorage.deleteAfter(indexName, lastVideoId);
+        log.info("Removed the partially indexed videos after the checkpoint.");
+    }
+
+    private void deleteDocuments(String indexName, List<String> youtubeVideoIds) {
+        for (int i = 0; i < youtubeVideoIds.size(); i += DELETE_CHUNK_SIZE) {
+            List<String> chunk = youtubeVideoIds.subList(i, Math.min(i + DELETE_CHUNK_SIZE, youtubeVideoIds.size()));
+            documentManager.deleteByFieldValues(indexName, YOUTUBE_VIDEO_ID, chunk);
+        }
+    }
+
+    private IndexingJob createJob() {
+        log.info("Full indexing has been started.");
         String indexName = generateVideoIndexName();
-        indexManager.create(indexName, VIDEO_INDEX_PROPERTIES);
+        indexManager.createForBulkLoad(indexName, VIDEO_INDEX_PROPERTIES);
         log.info("A new index '{}' has been created.", indexName);
+        return indexingJobStorage.create(indexName, Instant.now());
+    }
 
-        indexVideos(indexName, videos);
+    @SneakyThrows
+    private void startFullIndexing(IndexingJob job) {
+        String indexName = job.getIndexName();
+        Optional<String> oldIndexName = indexManager.getIndexName(ALIAS);
 
-        VideoIndexMetadata videoIndexMetadata = new VideoIndexMetadata(startTime, Instant.now());
+        log.info("Start indexing the videos...");
+        CompletionTracker tracker = new CompletionTracker(
+                new Progress(job.getLastVideoId(), job.getIndexedVideos(), job.getIndexedDocs())
+        );
+        indexingProgress = new IndexingProgress(videoStorage.count(), job.getIndexedVideos());
+        long checkpointInterval = properties.job().checkpointInterval().toMillis();
+        try (ScheduledExecutorService checkpointScheduler =
+                     Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().factory())) {
+            checkpointScheduler.scheduleWithFixedDelay(() -> saveCheckpoint(job, tracker),
+                    checkpointInterval, checkpointInterval, TimeUnit.MILLISECONDS);
+            Stream<Video> videos = videoStorage.streamAfter(job.getLastVideoId(), properties.reader().batchSize())
+                    .peek(video -> indexingProgress.addVideo());
+            indexingPipeline.index(indexName, videos, tracker, indexingProgress);
+        } finally {
+            saveCheckpoint(job, tracker);
+        }
+        log.info("{} videos and {} docs have been indexed.", job.getIndexedVideos(), job.getIndexedDocs());
+
+        // the segments are merged before the replicas are added, so the replicas copy the merged segments
+        indexManager.forceMerge(indexName, properties.index().maxSegments());
+        log.info("The index has been force-merged.");
+
+        indexManager.applyLiveSettings(indexName);
+        indexManager.waitForGreen(indexName);
+        log.info("The live settings have been applied to the index.");
+
+        // most of the changes are replayed while the videos can still be edited,
+        // so the edits are blocked only for the final replay of the changes made since then
+        long replayedChangeId = replayChanges(indexName, listCommittedChanges(0L), 0L);
+
+        VideoIndexMetadata videoIndexMetadata =
+                new VideoIndexMetadata(job.getStartTime(), Instant.now(), VideoIndexingPipeline.VERSION);
         indexManager.setMetadata(indexName, videoIndexMetadata.toMetadata());
         log.info("The index metadata has been updated.");
 
-        indexManager.putAlias(indexName, ALIAS);
-        log.info("The alias has been updated.");
+        long lastChangeId;
+        swapLock.writeLock().lock();
+        try {
+            lastChangeId = replayChanges(indexName, replayedChangeId);
+            indexManager.putAlias(indexName, ALIAS);
+            log.info("The alias has been updated.");
+            indexingJobStorage.updateStatus(job, COMPLETED);
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        videoChangeStorage.deleteUpTo(lastChangeId);
 
-        oldIndexName.ifPresent(indexManager::delete);
+        // if the job was resumed after the alias had been updated, the alias already points to the new index
+        oldIndexName.filter(name -> !name.equals(indexName)).ifPresent(indexManager::delete);
         log.info("The old index has been removed.");
 
         indexedVideoStorage.cleanUp(indexName);
         log.info("Removed stale indexed videos from the database.");
+
+        // every existing video has used its cached sentences during the job
+        int evictedSentences = sentenceCache.evictUnusedSince(job.getStartTime());
+        log.info("Removed {} stale entries from the sentence cache.", evictedSentences);
     }
 
+    /**
+     * Applies the videos that have been added, changed, or deleted since the index
+     * was built to the index in place. The subtitles of the unchanged videos are
+     * only read to calculate their hashes, so they are not parsed and split into sentences again.
+     */
     @SneakyThrows
-    private void indexVideos(String indexName, Collection<Video> videos) {
-        if (!indexManager.exists(indexName)) {
-            return;
+    private void startIncrementalIndexing(String indexName) {
+        Instant startTime = Instant.now();
+        log.info("Incremental indexing of '{}' has been started.", indexName);
+
+        Map<String, String> indexedHashes = indexedVideoStorage.findContentHashes(indexName);
+        CompletionTracker tracker = new CompletionTracker(new Progress(0, 0, 0));
+        // all the videos are read to be compared, so the progress goes through all of them
+        indexingProgress = new IndexingProgress(videoStorage.count(), 0);
+        Stream<Video> changedVideos = videoStorage.streamAll(properties.reader().batchSize())
+                .peek(video -> indexingProgress.addVideo())
+                .filter(video -> removeIfChanged(indexName, video, indexedHashes));
+        indexingPipeline.index(indexName, changedVideos, tracker, indexingProgress);
+
+        // the videos that are left have been deleted since the last indexing
+        List<String> deletedVideos = List.copyOf(indexedHashes.keySet());
+        deleteDocuments(indexName, deletedVideos);
+        indexedVideoStorage.deleteAll(indexName, deletedVideos);
+
+        Progress progress = tracker.progress();
+        log.info("{} videos and {} docs have been indexed, {} videos have been removed.",
+                progress.completedItems(), progress.completedUnits(), deletedVideos.size());
+
+        // the edits made during the job could have raced with it, so they are applied once more,
+        // most of them while the videos can still be edited
+        long replayedChangeId = replayChanges(indexName, listCommittedChanges(0L), 0L);
+        long lastChangeId;
+        swapLock.writeLock().lock();
+        try {
+            lastChangeId = replayChanges(indexName, replayedChangeId);
+        } finally {
+            swapLock.writeLock().unlock();
         }
-        List<Future<BulkResponse>> futures = bulkIndex(indexName, videos);
-        for (Future<BulkResponse> future : futures) {
-            BulkResponse response = future.get();
-            if (response.errors()) {
-                throw new RuntimeException("Error occurred during video indexing: " + response);
-            } else {
-                log.info("{} docs have been successfully indexed. It took {} ms.", response.items().size(), response.took());
-            }
+        videoChangeStorage.deleteUpTo(lastChangeId);
+
+        VideoIndexMetadata videoIndexMetadata =
+                new VideoIndexMetadata(startTime, Instant.now(), VideoIndexingPipeline.VERSION);
+        indexManager.setMetadata(indexName, videoIndexMetadata.toMetadata());
+        log.info("The index metadata has been updated.");
+    }
+
+    /**
+     * Checks if the video has been added or changed since it was indexed.
+     * The video is taken off the given indexed hashes, and if it has changed,
+     * its outdated documents are removed from the index.
+     *
+     * @return true if the video has to be indexed
+     */
+    private boolean removeIfChanged(String indexName, Video video, Map<String, String> indexedHashes) {
+        String youtubeVideoId = video.getYoutubeVideoId();
+        boolean indexed = indexedHashes.containsKey(youtubeVideoId);
+        String indexedHash = indexedHashes.remove(youtubeVideoId);
+        if (indexingPipeline.contentHash(video).equals(indexedHash)) {
+            return false;
         }
+        if (indexed) {
+            documentManager.deleteByFieldValue(indexName, YOUTUBE_VIDEO_ID, youtubeVideoId);
+            indexedVideoStorage.delete(indexName, youtubeVideoId);
+        }
+        return true;
     }
 
-    private static String generateVideoIndexName() {
-        return ALIAS + "_" + Instant.now().toEpochMilli();
+    /**
+     * Lists the changes made after the given one while no edit is in progress. Concurrent edits
+     * may commit their changes out of the order of their IDs, but every edit records its change
+     * after the video itself is saved or deleted, and the edits hold the read lock until then.
+     * So under the write lock, no change below the last listed one can be committed later,
+     * and the listed changes can be replayed without the lock.
+     *
+     * @param lastChangeId the ID of the change after which the changes are listed
+     * @return a list of changes
+     */
+    private List<VideoChange> listCommittedChanges(long lastChangeId) {
+        swapLock.writeLock().lock();
+        try {
+            return videoChangeStorage.findAfter(lastChangeId);
+        } finally {
+            swapLock.writeLock().unlock();
+        }
     }
 
-    private List<Future<BulkResponse>> bulkIndex(String indexName, Collection<Video> videos) {
-        List<VideoFragmentDocument> docs = new ArrayList<>();
-        List<Future<BulkResponse>> futures = new ArrayList<>();
-        for (Video video : videos) {
-            SrtSubtitles srtSubtitles = new SrtSubtitles(video.getSrt());
-
-            List<SubtitleEntry> subtitleEntries = srtSubtitles.stream()
-                    .map(b -> new SubtitleEntry(
-                            b.timeFrame().startTime(),
-                            b.timeFrame().endTime(),
-                            List.of(String.join(" ", b.text())))
-                    ).toList();
-            IndexedVideo indexedVideo = new IndexedVideo(
-                    null, indexName, video.getYoutubeVideoId(), video.getVariety(), subtitleEntries
-            );
-            indexedVideoStorage.save(indexedVideo);
-
-            List<SubtitleSentence> sentences = sentenceExtractor.extract(srtSubtitles);
-            for (SubtitleSentence sentence : sentences) {
-                String transformedText = TextTransformations.removeSoundDescriptions(sentence.text());
-                VideoFragmentDocument doc = new VideoFragmentDocument(
-                        video.getYoutubeVideoId(),
-                        video.getVariety(),
-                        transformedText,
-                        sentence.position(),
-                        sentence.rangeMap()
-                );
-                if (docs.size() >= BULK_SIZE) {
-                    futures.add(documentManager.index(indexName, docs));
-                    docs = new ArrayList<>();
-                }
-                docs.add(doc);
-            }
+    /**
+     * Replays the recorded video changes onto the given index. Every change is applied
+     * by bringing the video in the index to its current state, so replaying a change
+     * more than once or in an index that already has it is harmless.
+     * It should be called under the write lock, so no change is committed behind the last replayed one.
+     *
+     * @param indexName     the name of the index
+     * @param lastChangeId  the ID of the change after which the changes are replayed
+     * @return the ID of the last replayed change
+     */
+    private long replayChanges(String indexName, long lastChangeId) {
+        return replayChanges(indexName, videoChangeStorage.findAfter(lastChangeId), lastChangeId);
+    }
+
+    /**
+     * Replays the given video changes onto the given index.
+     *
+     * @param indexName     the name of the index
+     * @param changes       the changes in the order of their IDs
+     * @param lastChangeId  the ID of the change after which the changes have been listed
+     * @return the ID of the last replayed change
+     */
+    private long replayChanges(String indexName, List<VideoChange> changes, long lastChangeId) {
+        if (changes.isEmpty()) {
+            return lastChangeId;
+        }
+        // the documents must be visible for search to be deleted by a query
+        indexManager.refresh(indexName);
+        for (VideoChange change : changes) {
+            replayChange(indexName, change);
+            lastChangeId = change.getId();
+        }
+        log.info("{} video changes have been replayed onto '{}'.", changes.size(), indexName);
+        return lastChangeId;
+    }
+
+    private void replayChange(String indexName, VideoChange change) {
+        Optional<Video> video = videoStorage.findAny(byId(change.getVideoId()));
+        String oldYoutubeVideoId = change.getYoutubeVideoId();
+        boolean oldIdGone = video.map(v -> !v.getYoutubeVideoId().equals(oldYoutubeVideoId)).orElse(true);
+        if (oldYoutubeVideoId != null && oldIdGone) {
+            documentManager.deleteByFieldValue(indexName, YOUTUBE_VIDEO_ID, oldYoutubeVideoId);
+            indexedVideoStorage.delete(indexName, oldYoutubeVideoId);
+        }
+        video.ifPresent(v -> indexingPipeline.update(indexName, v.getYoutubeVideoId(), v));
+    }
+
+    private void saveCheckpoint(IndexingJob job, CompletionTracker tracker) {
+        try {
+            indexingJobStorage.saveCheckpoint(job, tracker.progress());
+        } catch (RuntimeException e) {
+            log.error("The checkpoint of the indexing job cannot be saved", e);
         }
-        if (!docs.isEmpty()) {
-            futures.add(documentManager.index(indexName, docs));
+    }
+
+    private void indexVideo(String indexName, Video video) {
+        if (indexManager.exists(indexName)) {
+            indexingPipeline.index(indexName, video);
         }
-        return futures;
+    }
+
+    private static String generateVideoIndexName() {
+        return ALIAS + "_" + Instant.now().toEpochMilli();
     }
 }
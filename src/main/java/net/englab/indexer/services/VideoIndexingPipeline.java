@@ -0,0 +1,396 @@
+package net.englab.indexer.services;
+
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.util.BinaryData;
+import co.elastic.clients.util.ContentType;
+import jakarta.json.stream.JsonGenerator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.englab.common.search.models.elastic.VideoFragmentDocument;
+import net.englab.common.search.models.subtitles.SubtitleEntry;
+import net.englab.indexer.configs.IndexerProperties;
+import net.englab.indexer.configs.IndexerProperties.Stage;
+import net.englab.indexer.metrics.IndexerMetrics;
+import net.englab.indexer.models.elastic.ElasticDocument;
+import net.englab.indexer.models.entities.IndexedVideo;
+import net.englab.indexer.models.entities.Video;
+import net.englab.indexer.pipeline.CompletionTracker;
+import net.englab.indexer.pipeline.Pipeline;
+import net.englab.indexer.pipeline.StageWorker;
+import net.englab.indexer.services.elastic.ElasticBulkDispatcher;
+import net.englab.indexer.services.elastic.ElasticBulkDispatcher.BulkListener;
+import net.englab.indexer.services.elastic.ElasticBulkDispatcher.BulkSession;
+import net.englab.indexer.services.elastic.ElasticDocumentManager;
+import net.englab.indexer.subtitles.ExtractedSentence;
+import net.englab.indexer.subtitles.SrtSubtitles;
+import net.englab.indexer.subtitles.SubtitleSentenceExtractor;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static net.englab.common.search.models.elastic.VideoIndexProperties.YOUTUBE_VIDEO_ID;
+import static net.englab.indexer.pipeline.ThreadType.PLATFORM;
+import static net.englab.indexer.pipeline.ThreadType.VIRTUAL;
+
+/**
+ * Turns videos into Elasticsearch documents and indexes them.
+ * Large amounts of videos are processed by a staged pipeline:
+ * parse -> sentence extraction -> document build -> bulk send.
+ * The CPU-bound stages run on platform threads and the I/O-bound ones on virtual threads.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class VideoIndexingPipeline {
+
+    /**
+     * The version of the pipeline. It must be incremented whenever the documents
+     * built from the same video change, e.g. when the sentence extraction is modified,
+     * so the videos indexed by the previous version are not mistaken for up-to-date ones
+     * and the sentences cached by the previous version are not used.
+     */
+    public static final int VERSION = 1;
+
+    // the number of bytes of the content hash that are used in document IDs
+    private static final int DOCUMENT_HASH_LENGTH = 16;
+
+    private final IndexerProperties properties;
+    private final IndexedVideoStorage indexedVideoStorage;
+    private final ElasticDocumentManager documentManager;
+    private final ElasticBulkDispatcher bulkDispatcher;
+    private final JsonpMapper jsonpMapper;
+    private final IndexerMetrics metrics;
+    private final SubtitleSentenceExtractor sentenceExtractor;
+    private final SentenceCache sentenceCache;
+
+    /**
+     * Indexes the given videos using all the configured pipeline stages.
+     * The videos must be ordered by ID, so the tracker can tell up to which video
+     * everything has been stored in the database and acknowledged by Elasticsearch.
+     *
+     * @param indexName the name of the index where the videos should be indexed
+     * @param videos    the videos to index ordered by ID
+     * @param tracker   the tracker that follows the completion of the videos
+     * @param progress  the progress of the job that is updated while the videos are indexed
+     */
+    public void index(String indexName, Stream<Video> videos, CompletionTracker tracker, IndexingProgress progress)
+            throws InterruptedException {
+        IndexerProperties.Stages stages = properties.pipeline();
+        Stage parse = stages.parse();
+        Stage extraction = stages.extraction();
+        Stage build = stages.build();
+        Stage bulk = stages.bulk();
+        // every video has two tasks: saving it to the database and adding its documents to the bulk session.
+        // Each document adds one more task that is completed when Elasticsearch acknowledges it.
+        BulkListener listener = new BulkListener() {
+            @Override
+            public void onCompleted(List<Object> sources) {
+                sources.forEach(source -> tracker.complete(((VideoReference) source).id()));
+                progress.addAcknowledgedDocs(sources.size());
+            }
+
+            @Override
+            public void onSent(int docs, long bytes) {
+                progress.addSentBytes(bytes);
+            }
+
+            @Override
+            public void onRetry(int docs) {
+                progress.addRetriedDocs(docs);
+            }
+        };
+        Stream<Video> source = videos.peek(video -> tracker.register(video.getId(), 2));
+        try (BulkSession bulkSession = bulkDispatcher.open(indexName, listener)) {
+            Pipeline<Void> pipeline = Pipeline.from(source)
+                    .<ParsedVideo>stage("parse", parse.threads(), parse.queueCapacity(), VIRTUAL,
+                            () -> new ParseWorker(indexName, tracker))
+                    .<ExtractedVideo>stage("extraction", extraction.threads(), extraction.queueCapacity(), PLATFORM,
+                            () -> (video, output) -> {
+                                ExtractedVideo extractedVideo = extract(video);
+                                progress.addSentences(extractedVideo.sentences().size());
+                                output.accept(extractedVideo);
+                            })
+                    .<VideoDocuments>stage("build", build.threads(), build.queueCapacity(), PLATFORM,
+                            () -> (video, output) -> output.accept(buildDocuments(video)))
+                    .<Void>stage("bulk", bulk.threads(), bulk.queueCapacity(), VIRTUAL,
+                            () -> (video, output) -> {
+                                VideoReference reference = video.reference();
+                                tracker.addUnits(reference.id(), video.docs().size());
+                                for (ElasticDocument doc : video.docs()) {
+                                    bulkSession.add(doc, reference);
+                                }
+                                tracker.complete(reference.id());
+                            });
+            progress.setStages(pipeline.stats());
+            pipeline.run();
+            Map<String, String> failedVideos = bulkSession.complete();
+            if (!failedVideos.isEmpty()) {
+                log.warn("{} videos have not been fully indexed: {}", failedVideos.size(), failedVideos.keySet());
+            }
+        }
+    }
+
+    /**
+     * Indexes a single video in the current thread.
+     *
+     * @param indexName the name of the index where the video should be indexed
+     * @param video     the video to index
+     */
+    public void index(String indexName, Video video) {
+        ParsedVideo parsedVideo = parse(video);
+        indexedVideoStorage.save(toIndexedVideo(indexName, parsedVideo));
+        List<ElasticDocument> docs = buildDocuments(extract(parsedVideo)).docs();
+        if (!docs.isEmpty()) {
+            BulkResponse response = documentManager.index(indexName, docs);
+            if (response.errors()) {
+                throw new RuntimeException("Error occurred during video indexing: " + response);
+            }
+            log.info("{} docs have been successfully indexed. It took {} ms.", response.items().size(), response.took());
+        }
+    }
+
+    /**
+     * Updates a single video in the current thread. The documents built from the new version
+     * of the video are compared with the indexed ones by their IDs, so only the new documents
+     * are indexed and the vanished ones are deleted, all in a single bulk request.
+     * If the content of the video has not changed, nothing is touched at all.
+     *
+     * @param indexName         the name of the index where the video is indexed
+     * @param youtubeVideoId    the YouTube video ID the video has been indexed with
+     * @param video             the new version of the video
+     * @return true if the video has been changed
+     */
+    public boolean update(String indexName, String youtubeVideoId, Video video) {
+        if (youtubeVideoId.equals(video.getYoutubeVideoId())) {
+            Optional<String> indexedHash = indexedVideoStorage.findContentHash(indexName, youtubeVideoId);
+            if (indexedHash.isPresent() && indexedHash.get().equals(contentHash(video))) {
+                return false;
+            }
+        }
+        Set<String> vanishedIds = documentManager.findIds(indexName, YOUTUBE_VIDEO_ID, youtubeVideoId);
+        ParsedVideo parsedVideo = parse(video);
+        List<ElasticDocument> newDocs = buildDocuments(extract(parsedVideo)).docs().stream()
+                .filter(doc -> !vanishedIds.remove(doc.id()))
+                .toList();
+        if (!newDocs.isEmpty() || !vanishedIds.isEmpty()) {
+            BulkResponse response = documentManager.update(indexName, newDocs, vanishedIds);
+            if (response.errors()) {
+                throw new RuntimeException("Error occurred during video updating: " + response);
+            }
+            log.info("{} docs have been indexed and {} docs have been deleted. It took {} ms.",
+                    newDocs.size(), vanishedIds.size(), response.took());
+        }
+        indexedVideoStorage.replace(indexName, youtubeVideoId, toIndexedVideo(indexName, parsedVideo));
+        return true;
+    }
+
+    /**
+     * Parses the subtitles of the video into the compact columnar form. The video is parsed only once,
+     * and the parsed subtitles are used both for the indexed video and for the sentence extraction.
+     */
+    private ParsedVideo parse(Video video) {
+        long start = System.nanoTime();
+        SrtSubtitles srtSubtitles = new SrtSubtitles(video.getSrt());
+        metrics.recordParse(video.getVariety(), System.nanoTime() - start);
+        return new ParsedVideo(video, srtSubtitles);
+    }
+
+    /**
+     * Turns the parsed subtitles of the video into the indexed video. The parsed subtitles keep
+     * the lines of every entry already joined, so the text is taken as is without joining it again.
+     */
+    private IndexedVideo toIndexedVideo(String indexName, ParsedVideo parsedVideo) {
+        Video video = parsedVideo.video();
+        SrtSubtitles srtSubtitles = parsedVideo.srtSubtitles();
+        List<SubtitleEntry> subtitleEntries = new ArrayList<>(srtSubtitles.size());
+        for (int i = 0; i < srtSubtitles.size(); i++) {
+            subtitleEntries.add(new SubtitleEntry(
+                    srtSubtitles.startTime(i),
+                    srtSubtitles.endTime(i),
+                    List.of(srtSubtitles.text(i))
+            ));
+        }
+        return new IndexedVideo(
+                null, indexName, video.getYoutubeVideoId(), video.getVariety(), subtitleEntries, contentHash(video)
+        );
+    }
+
+    /**
+     * Calculates the hash of everything the documents of the video are built from:
+     * the subtitles, the variety of English, the sentence detector, and the version of the pipeline.
+     *
+     * @param video the video
+     * @return a hex-encoded SHA-256 hash
+     */
+    public String contentHash(Video video) {
+        byte[] hash = sha256(
+                (VERSION + "\n" + video.getVariety() + "\n" + properties.sentences().detector() + "\n")
+                        .getBytes(StandardCharsets.UTF_8),
+                video.getSrt().getBytes(StandardCharsets.UTF_8)
+        );
+        return HexFormat.of().formatHex(hash);
+    }
+
+    /**
+     * Calculates the hash the sentences of the video are cached by. The sentences do not depend
+     * on the variety of English, so the videos with the same subtitles share the cached sentences,
+     * but they depend on the sentence detector.
+     *
+     * @param video the video
+     * @return a hex-encoded SHA-256 hash
+     */
+    private String sentenceHash(Video video) {
+        byte[] hash = sha256(
+                ("sentences\n" + VERSION + "\n" + properties.sentences().detector() + "\n")
+                        .getBytes(StandardCharsets.UTF_8),
+                video.getSrt().getBytes(StandardCharsets.UTF_8)
+        );
+        return HexFormat.of().formatHex(hash);
+    }
+
+    /**
+     * Extracts sentences from the subtitles of the video and removes sound descriptions from them.
+     * The sentences are taken from the cache if the same subtitles have been processed before.
+     * Otherwise, they are extracted from the subtitles parsed by the parse stage.
+     */
+    private ExtractedVideo extract(ParsedVideo parsedVideo) {
+        Video video = parsedVideo.video();
+        String hash = sentenceHash(video);
+        Optional<List<ExtractedSentence>> cachedSentences = sentenceCache.find(hash);
+        metrics.recordCacheLookup(cachedSentences.isPresent());
+        if (cachedSentences.isPresent()) {
+            return new ExtractedVideo(video, cachedSentences.get());
+        }
+
+        long start = System.nanoTime();
+        List<ExtractedSentence> sentences =
+                sentenceExtractor.extractSentences(parsedVideo.srtSubtitles(), true);
+        metrics.recordExtraction(video.getVariety(), System.nanoTime() - start, sentences.size());
+        sentenceCache.put(hash, sentences);
+        return new ExtractedVideo(video, sentences);
+    }
+
+    private VideoDocuments buildDocuments(ExtractedVideo extractedVideo) {
+        Video video = extractedVideo.video();
+        List<ElasticDocument> docs = new ArrayList<>(extractedVideo.sentences().size());
+        for (ExtractedSentence sentence : extractedVideo.sentences()) {
+            VideoFragmentDocument doc = new VideoFragmentDocument(
+                    video.getYoutubeVideoId(),
+                    video.getVariety(),
+                    sentence.text(),
+                    sentence.position(),
+                    sentence.toRangeMap()
+            );
+            docs.add(toElasticDocument(video.getYoutubeVideoId(), doc));
+        }
+        return new VideoDocuments(new VideoReference(video.getId(), video.getYoutubeVideoId()), docs);
+    }
+
+    /**
+     * Serializes the document and derives its ID from the YouTube video ID and the serialized content.
+     * The same sentence always gets the same ID, so an updated video can be compared
+     * with the indexed one by the IDs of the documents.
+     */
+    private ElasticDocument toElasticDocument(String youtubeVideoId, VideoFragmentDocument doc) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (JsonGenerator generator = jsonpMapper.jsonProvider().createGenerator(output)) {
+            jsonpMapper.serialize(doc, generator);
+        }
+        byte[] data = output.toByteArray();
+        String id = youtubeVideoId + "-" + HexFormat.of().formatHex(sha256(data), 0, DOCUMENT_HASH_LENGTH);
+        return new ElasticDocument(id, BinaryData.of(data, ContentType.APPLICATION_JSON));
+    }
+
+    private static byte[] sha256(byte[]... chunks) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (byte[] chunk : chunks) {
+                digest.update(chunk);
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A video with its subtitles parsed into the compact columnar form, which is cheap enough
+     * to be passed from stage to stage for every video in flight.
+     */
+    private record ParsedVideo(Video video, SrtSubtitles srtSubtitles) {
+    }
+
+    /**
+     * A video with the sentences extracted from its subtitles. Sound descriptions
+     * are already removed from the sentences.
+     */
+    private record ExtractedVideo(Video video, List<ExtractedSentence> sentences) {
+    }
+
+    /**
+     * The Elasticsearch documents built for a video.
+     */
+    private record VideoDocuments(VideoReference reference, List<ElasticDocument> docs) {
+    }
+
+    /**
+     * A reference to the video which documents are sent to Elasticsearch.
+     * Its string representation is the YouTube video ID, so it's reported in case of failures.
+     */
+    private record VideoReference(Long id, String youtubeVideoId) {
+        @Override
+        public String toString() {
+            return youtubeVideoId;
+        }
+    }
+
+    /**
+     * The worker of the parse stage. It parses subtitles and saves indexed videos
+     * to the database in batches, so we do not pay for a transaction and a round trip per video.
+     * The videos are reported to the tracker once their batch is saved.
+     */
+    @RequiredArgsConstructor
+    private class ParseWorker implements StageWorker<Video, ParsedVideo> {
+        private final String indexName;
+        private final CompletionTracker tracker;
+        private final List<IndexedVideo> indexedVideos = new ArrayList<>();
+        private final List<Long> videoIds = new ArrayList<>();
+
+        @Override
+        public void process(Video video, Consumer<ParsedVideo> output) {
+            ParsedVideo parsedVideo = parse(video);
+            indexedVideos.add(toIndexedVideo(indexName, parsedVideo));
+            videoIds.add(video.getId());
+            if (indexedVideos.size() >= properties.writer().batchSize()) {
+                flush();
+            }
+            output.accept(parsedVideo);
+        }
+
+        @Override
+        public void finish(Consumer<ParsedVideo> output) {
+            flush();
+        }
+
+        private void flush() {
+            if (!indexedVideos.isEmpty()) {
+                indexedVideoStorage.saveAll(indexedVideos);
+                indexedVideos.clear();
+                videoIds.forEach(tracker::complete);
+                videoIds.clear();
+            }
+        }
+    }
+}
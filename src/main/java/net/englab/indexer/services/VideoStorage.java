@@ -3,6 +3,7 @@ package net.englab.indexer.services;
 import lombok.RequiredArgsConstructor;
 import net.englab.indexer.models.entities.Video;
 import net.englab.indexer.repository.VideoRepository;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
@@ -11,6 +12,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * A video storage service that provides basic operations
@@ -33,6 +35,16 @@ public class VideoStorage {
         return videoRepository.save(video).getId();
     }
 
+    /**
+     * Counts all videos in the storage.
+     *
+     * @return the number of videos
+     */
+    @Transactional(readOnly = true)
+    public long count() {
+        return videoRepository.count();
+    }
+
     /**
      * Deletes a video by its unique identifier.
      *
@@ -56,13 +68,45 @@ public class VideoStorage {
     }
 
     /**
-     * Finds all videos.
+     * Lazily reads all videos ordered by ID.
+     * The videos are fetched batch by batch using keyset pagination, and every batch
+     * is loaded in its own short read-only transaction, so the returned entities are
+     * already detached and can be garbage collected as soon as they are processed.
+     * This keeps memory usage flat no matter how many videos we have in the storage.
+     *
+     * @param batchSize the number of videos that are fetched from the database at once
+     * @return a lazy stream of all videos
+     */
+    public Stream<Video> streamAll(int batchSize) {
+        return streamAfter(0L, batchSize);
+    }
+
+    /**
+     * Lazily reads all videos whose IDs are greater than the given one ordered by ID.
+     * The videos are read the same way as in {@link #streamAll(int)}.
+     *
+     * @param id        the ID after which the videos are read
+     * @param batchSize the number of videos that are fetched from the database at once
+     * @return a lazy stream of videos
+     */
+    public Stream<Video> streamAfter(Long id, int batchSize) {
+        Limit limit = Limit.of(batchSize);
+        return Stream.iterate(
+                videoRepository.findByIdGreaterThanOrderByIdAsc(id, limit),
+                videos -> !videos.isEmpty(),
+                videos -> videoRepository.findByIdGreaterThanOrderByIdAsc(videos.getLast().getId(), limit)
+        ).flatMap(List::stream);
+    }
+
+    /**
+     * Finds the YouTube video IDs of the videos whose IDs are greater than the given one.
      *
-     * @return a list of all videos that we have in the storage
+     * @param id the ID after which the videos are searched
+     * @return a list of YouTube video IDs
      */
     @Transactional(readOnly = true)
-    public List<Video> findAll() {
-        return videoRepository.findAll();
+    public List<String> findYoutubeVideoIdsAfter(Long id) {
+        return videoRepository.findYoutubeVideoIdsByIdGreaterThan(id);
     }
 
     /**
@@ -0,0 +1,398 @@
+package net.englab.indexer.services.elastic;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorCause;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.transport.TransportException;
+import lombok.extern.slf4j.Slf4j;
+import net.englab.common.search.exceptions.ElasticOperationException;
+import net.englab.indexer.configs.IndexerProperties;
+import net.englab.indexer.metrics.IndexerMetrics;
+import net.englab.indexer.models.elastic.ElasticDocument;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Sends documents to Elasticsearch using asynchronous bulk requests.
+ * The documents are grouped into batches that are flushed on whichever comes first:
+ * the number of documents, the estimated size of the request, or the maximum linger time.
+ * The number of bulk requests in flight is limited, so producers are blocked
+ * when Elasticsearch cannot keep up with them. The responses are handled
+ * as soon as they arrive and are not kept in memory.
+ * <p>
+ * Documents rejected by a busy cluster are resent with exponential backoff and jitter
+ * until the retry budget runs out. Documents that fail for any other reason are reported
+ * and skipped, so a single broken document does not break the whole indexing job.
+ * <p>
+ * Every document is added along with its source, so the caller can be notified
+ * through a {@link BulkListener} when the documents of a source are done.
+ */
+@Slf4j
+@Service
+public class ElasticBulkDispatcher {
+    // The approximate size of the action line that precedes every document in a bulk request, without the ID
+    private static final int ACTION_LINE_SIZE = 24;
+
+    // Bulk responses are filtered, so only the status and the error of each item come back.
+    // The index name is also kept because the client requires it.
+    private static final String FILTER_PATH = "took,errors,items.*._index,items.*.status,items.*.error";
+
+    private final ElasticsearchAsyncClient elasticsearchAsyncClient;
+    private final IndexerProperties properties;
+    private final IndexerMetrics.BulkMeters meters;
+
+    public ElasticBulkDispatcher(ElasticsearchAsyncClient elasticsearchAsyncClient, IndexerProperties properties,
+                                 IndexerMetrics metrics) {
+        this.elasticsearchAsyncClient = elasticsearchAsyncClient
+                .withTransportOptions(o -> o.setParameter("filter_path", FILTER_PATH));
+        this.properties = properties;
+        this.meters = metrics.asyncBulk();
+    }
+
+    /**
+     * Opens a new bulk session for the given index.
+     * The session must be closed when it's not needed anymore.
+     *
+     * @param indexName the name of the index to which the documents are to be added
+     * @return a new bulk session
+     */
+    public BulkSession open(String indexName) {
+        return open(indexName, sources -> {});
+    }
+
+    /**
+     * Opens a new bulk session for the given index.
+     * The session must be closed when it's not needed anymore.
+     *
+     * @param indexName the name of the index to which the documents are to be added
+     * @param listener  the listener that is notified when documents are done
+     * @return a new bulk session
+     */
+    public BulkSession open(String indexName, BulkListener listener) {
+        return new BulkSession(indexName, properties.bulk(), listener);
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 429 || status == 502 || status == 503 || status == 504;
+    }
+
+    private static boolean isRetryable(Throwable throwable) {
+        return switch (throwable) {
+            case ElasticsearchException e -> isRetryable(e.status());
+            case TransportException e -> isRetryable(e.statusCode());
+            case IOException e -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * A bulk session that indexes documents into a single index.
+     * The session is thread-safe, so multiple producers can add documents concurrently.
+     */
+    public class BulkSession implements AutoCloseable {
+        private final String indexName;
+        private final IndexerProperties.Bulk settings;
+        private final BulkListener listener;
+        // every permit is held by a batch from its first request until its last retry is completed
+        private final Semaphore permits;
+        private final AtomicLong retryBudget;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final Map<String, String> failedSources = new ConcurrentHashMap<>();
+        private final ScheduledExecutorService lingerScheduler;
+
+        private Batch batch = new Batch();
+
+        private BulkSession(String indexName, IndexerProperties.Bulk settings, BulkListener listener) {
+            this.indexName = indexName;
+            this.settings = settings;
+            this.listener = listener;
+            this.permits = new Semaphore(settings.maxInFlight());
+            this.retryBudget = new AtomicLong(settings.retry().budget());
+
+            long checkInterval = Math.max(settings.linger().toMillis() / 4, 10);
+            lingerScheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().factory());
+            lingerScheduler.scheduleWithFixedDelay(this::flushExpiredBatch, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Adds the given document to the current batch. The document is already serialized,
+         * so we know exactly how much it weighs. If the batch is full, it's sent to Elasticsearch.
+         * If the maximum number of bulk requests is already in flight, the method blocks
+         * until one of them is completed.
+         *
+         * @param doc       the document to be indexed
+         * @param source    the source of the document, e.g. the video it's built from.
+         *                  It's passed to the listener and its string representation
+         *                  is used to report failed documents.
+         * @throws ElasticOperationException if any previous bulk request has failed
+         */
+        public void add(ElasticDocument doc, Object source) throws InterruptedException {
+            checkFailure();
+            Batch fullBatch = null;
+            synchronized (this) {
+                batch.add(doc, source);
+                if (batch.docs.size() >= settings.maxDocs() || batch.bytes >= settings.maxSize().toBytes()) {
+                    fullBatch = batch;
+                    batch = new Batch();
+                }
+            }
+            if (fullBatch != null) {
+                submit(fullBatch);
+            }
+        }
+
+        private void flushExpiredBatch() {
+            Batch expiredBatch = null;
+            synchronized (this) {
+                if (!batch.docs.isEmpty() && batch.age().compareTo(settings.linger()) >= 0) {
+                    expiredBatch = batch;
+                    batch = new Batch();
+                }
+            }
+            if (expiredBatch != null) {
+                try {
+                    submit(expiredBatch);
+                } catch (InterruptedException e) {
+                    abandon(expiredBatch, e);
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void submit(Batch batch) throws InterruptedException {
+            permits.acquire();
+            send(batch, 0);
+        }
+
+        private void send(Batch batch, int attempt) {
+            try {
+                listener.onSent(batch.docs.size(), batch.bytes);
+                meters.recordRequest(batch.docs.size(), batch.bytes);
+                long start = System.nanoTime();
+                elasticsearchAsyncClient.bulk(b -> b
+                        .index(indexName)
+                        .operations(ElasticDocumentManager.createOperations(batch.docs))
+                ).whenComplete((response, throwable) -> {
+                    meters.recordLatency(System.nanoTime() - start);
+                    handleResponse(batch, attempt, response, throwable);
+                });
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private void handleResponse(Batch batch, int attempt, BulkResponse response, Throwable throwable) {
+            try {
+                if (throwable != null) {
+                    Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                    if (!isRetryable(cause) || !retry(batch, attempt)) {
+                        meters.recordFailures(batch.docs.size());
+                        fail(cause);
+                    }
+                    return;
+                }
+
+                Batch rejectedBatch = new Batch();
+                List<Object> completedSources = batch.sources;
+                if (response.errors()) {
+                    completedSources = new ArrayList<>(batch.sources.size());
+                    List<BulkResponseItem> items = response.items();
+                    for (int i = 0; i < items.size(); i++) {
+                        BulkResponseItem item = items.get(i);
+                        Object source = batch.sources.get(i);
+                        if (item.error() != null && isRetryable(item.status())) {
+                            rejectedBatch.add(batch.docs.get(i), source);
+                            continue;
+                        }
+                        if (item.error() != null) {
+                            reportFailure(source, item.error());
+                        }
+                        completedSources.add(source);
+                    }
+                }
+                log.info("{} docs have been processed. It took {} ms.", batch.docs.size(), response.took());
+                listener.onCompleted(completedSources);
+
+                if (rejectedBatch.docs.isEmpty()) {
+                    permits.release();
+                } else if (!retry(rejectedBatch, attempt)) {
+                    meters.recordFailures(rejectedBatch.docs.size());
+                    fail(new RuntimeException(rejectedBatch.docs.size() + " docs have been rejected too many times"));
+                }
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * Schedules the given batch to be resent after a backoff delay.
+         * The permit of the batch is kept until the retry is completed.
+         *
+         * @return false if the batch cannot be retried because the retries have run out
+         */
+        private boolean retry(Batch batch, int attempt) {
+            IndexerProperties.Retry retrySettings = settings.retry();
+            if (attempt >= retrySettings.maxRetries() || retryBudget.addAndGet(-batch.docs.size()) < 0) {
+                return false;
+            }
+            listener.onRetry(batch.docs.size());
+            long delay = backoff(retrySettings, attempt);
+            log.warn("{} docs are going to be resent in {} ms (attempt {}).", batch.docs.size(), delay, attempt + 1);
+            Executor delayedExecutor = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS);
+            CompletableFuture.runAsync(() -> send(batch, attempt + 1), delayedExecutor);
+            return true;
+        }
+
+        /**
+         * Calculates an exponential backoff delay with jitter, so retries from
+         * concurrent requests do not hit the cluster at the same moment.
+         */
+        private static long backoff(IndexerProperties.Retry retrySettings, int attempt) {
+            long initialBackoff = retrySettings.initialBackoff().toMillis();
+            long maxBackoff = retrySettings.maxBackoff().toMillis();
+            long backoff = Math.min(maxBackoff, initialBackoff << Math.min(attempt, 30));
+            return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        }
+
+        private void reportFailure(Object source, ErrorCause error) {
+            meters.recordFailures(1);
+            String reason = error.type() + ": " + error.reason();
+            if (failedSources.putIfAbsent(source.toString(), reason) == null) {
+                log.error("A document from '{}' cannot be indexed. {}", source, reason);
+            }
+        }
+
+        private void fail(Throwable throwable) {
+            failure.compareAndSet(null, throwable);
+            permits.release();
+        }
+
+        /**
+         * Reports the documents of a batch that has been taken off the session but cannot be sent,
+         * so they are never lost silently. The sources of the documents are not completed,
+         * so they are indexed again when the job is resumed.
+         */
+        private void abandon(Batch batch, Throwable cause) {
+            meters.recordFailures(batch.docs.size());
+            for (Object source : batch.sources) {
+                failedSources.putIfAbsent(source.toString(), "The document has not been sent: " + cause);
+            }
+            log.error("{} docs have not been sent because the bulk session has been interrupted.", batch.docs.size());
+            failure.compareAndSet(null, cause);
+        }
+
+        /**
+         * Sends the remaining documents and waits until all the bulk requests are completed.
+         *
+         * @return  the sources whose documents could not be indexed mapped to the failure reasons.
+         *          These documents have been skipped.
+         * @throws ElasticOperationException if any bulk request has failed entirely
+         */
+        public Map<String, String> complete() throws InterruptedException {
+            // a linger flush may have taken a batch and be waiting for a permit,
+            // so it has to finish before the permits are drained
+            lingerScheduler.shutdown();
+            while (!lingerScheduler.awaitTermination(1, TimeUnit.SECONDS)) {
+                log.debug("Waiting for the linger flush to finish...");
+            }
+            Batch lastBatch;
+            synchronized (this) {
+                lastBatch = batch;
+                batch = new Batch();
+            }
+            if (!lastBatch.docs.isEmpty()) {
+                checkFailure();
+                try {
+                    submit(lastBatch);
+                } catch (InterruptedException e) {
+                    abandon(lastBatch, e);
+                    throw e;
+                }
+            }
+            permits.acquire(settings.maxInFlight());
+            permits.release(settings.maxInFlight());
+            checkFailure();
+            return Map.copyOf(failedSources);
+        }
+
+        private void checkFailure() {
+            Throwable throwable = failure.get();
+            if (throwable != null) {
+                throw new ElasticOperationException("An exception occurred while indexing documents", throwable);
+            }
+        }
+
+        /**
+         * Stops flushing batches on the linger timeout. Documents that have not been taken
+         * into a bulk request are discarded, and a linger flush that is waiting for a permit
+         * is interrupted, in which case its documents are reported as failed.
+         */
+        @Override
+        public void close() {
+            lingerScheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * A listener of a bulk session.
+     */
+    @FunctionalInterface
+    public interface BulkListener {
+
+        /**
+         * Called when documents are done, i.e. they have been either indexed
+         * or skipped because of a non-retryable failure. The method is called
+         * from the threads that handle bulk responses, so it must be thread-safe and fast.
+         *
+         * @param sources the sources of the documents, one per document
+         */
+        void onCompleted(List<Object> sources);
+
+        /**
+         * Called when a bulk request is sent, including the retries.
+         *
+         * @param docs  the number of documents in the request
+         * @param bytes the estimated size of the request
+         */
+        default void onSent(int docs, long bytes) {
+        }
+
+        /**
+         * Called when rejected documents are scheduled to be resent.
+         *
+         * @param docs the number of documents to be resent
+         */
+        default void onRetry(int docs) {
+        }
+    }
+
+    /**
+     * A batch of serialized documents that are going to be sent in a single bulk request.
+     */
+    private static class Batch {
+        private final List<ElasticDocument> docs = new ArrayList<>();
+        private final List<Object> sources = new ArrayList<>();
+        private final long startTime = System.nanoTime();
+        private long bytes;
+
+        void add(ElasticDocument doc, Object source) {
+            docs.add(doc);
+            sources.add(source);
+            bytes += doc.data().size() + doc.id().length() + ACTION_LINE_SIZE;
+        }
+
+        Duration age() {
+            return Duration.ofNanos(System.nanoTime() - startTime);
+        }
+    }
+}
@@ -1,19 +1,20 @@
 package net.englab.indexer.services.elastic;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
 import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.search.Hit;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.englab.common.search.exceptions.ElasticOperationException;
-import org.springframework.scheduling.annotation.Async;
+import net.englab.indexer.metrics.IndexerMetrics;
+import net.englab.indexer.models.elastic.ElasticDocument;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.util.Collection;
-import java.util.List;
-import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
+import java.util.*;
 
 /**
  * Provides operations that are related to Elasticsearch documents
@@ -24,37 +25,134 @@ import java.util.concurrent.CompletableFuture;
 @RequiredArgsConstructor
 public class ElasticDocumentManager {
 
+    // the number of hits read by a single search request, it cannot exceed the default maximum of 10,000
+    private static final int PAGE_SIZE = 10_000;
+    // how long a point in time is kept between the pages of a search
+    private static final String KEEP_ALIVE = "1m";
+
     private final ElasticsearchClient elasticsearchClient;
+    private final IndexerMetrics metrics;
 
     /**
-     * Asynchronously indexes the given collection of documents. The method returns immediately,
-     * providing a CompletableFuture for the eventual operation result.
+     * Indexes the given collection of documents using a single bulk request.
+     * Large amounts of documents should be indexed using {@link ElasticBulkDispatcher} instead.
      *
      * @param indexName the name of the index to which the documents are to be added
      * @param docs      the collection of documents to be indexed
-     * @return  a CompletableFuture that, upon completion, contains a BulkResponse
-     *          detailing the result of the bulk indexing operation
+     * @return a BulkResponse detailing the result of the bulk indexing operation
      */
-    @Async
-    public CompletableFuture<BulkResponse> index(String indexName, Collection<?> docs) {
-        List<BulkOperation> bulkOperations = docs.stream()
-                .map(doc -> BulkOperation.of(b -> b
-                                .create(c -> c
-                                        .id(UUID.randomUUID().toString())
-                                        .document(doc))
-                        )
-                ).toList();
+    public BulkResponse index(String indexName, Collection<ElasticDocument> docs) {
+        return update(indexName, docs, List.of());
+    }
+
+    /**
+     * Indexes and deletes the given documents using a single bulk request.
+     *
+     * @param indexName     the name of the index
+     * @param docs          the documents to be indexed
+     * @param deletedIds    the IDs of the documents to be deleted
+     * @return a BulkResponse detailing the result of the bulk operation
+     */
+    public BulkResponse update(String indexName, Collection<ElasticDocument> docs, Collection<String> deletedIds) {
+        List<BulkOperation> operations = new ArrayList<>(createOperations(docs));
+        for (String id : deletedIds) {
+            operations.add(BulkOperation.of(b -> b.delete(d -> d.id(id))));
+        }
+        IndexerMetrics.BulkMeters meters = metrics.syncBulk();
+        meters.recordRequest(operations.size(), docs.stream().mapToLong(doc -> doc.data().size()).sum());
+        long start = System.nanoTime();
         try {
             BulkResponse response = elasticsearchClient.bulk(b -> b
                     .index(indexName)
-                    .operations(bulkOperations)
+                    .operations(operations)
             );
-            return CompletableFuture.completedFuture(response);
+            meters.recordLatency(System.nanoTime() - start);
+            if (response.errors()) {
+                meters.recordFailures((int) response.items().stream().filter(item -> item.error() != null).count());
+            }
+            return response;
         } catch (IOException e) {
+            meters.recordFailures(operations.size());
             throw new ElasticOperationException("An exception occurred while indexing documents", e);
         }
     }
 
+    /**
+     * Creates bulk operations that add the given documents to an index.
+     * The documents are already serialized, so they are sent as they are.
+     *
+     * @param docs the documents
+     * @return a list of bulk operations
+     */
+    static List<BulkOperation> createOperations(Collection<ElasticDocument> docs) {
+        return docs.stream()
+                .map(doc -> BulkOperation.of(b -> b
+                                .index(i -> i.id(doc.id()).document(doc.data()))
+                        )
+                ).toList();
+    }
+
+    /**
+     * Finds the IDs of all documents in a specified index where a given field has a particular value.
+     * The index is refreshed first, so the documents that have been indexed recently are found too.
+     * The documents are read page by page within a point in time, so there is no limit on their number.
+     *
+     * @param indexName     the name of the index
+     * @param fieldName     the name of the field to be checked in each document
+     * @param fieldValue    the value of the field
+     * @return a set of document IDs
+     */
+    public Set<String> findIds(String indexName, String fieldName, String fieldValue) {
+        try {
+            elasticsearchClient.indices().refresh(r -> r.index(indexName));
+            String pitId = elasticsearchClient.openPointInTime(p -> p
+                    .index(indexName)
+                    .keepAlive(k -> k.time(KEEP_ALIVE))
+            ).id();
+            try {
+                Set<String> ids = new HashSet<>();
+                List<FieldValue> searchAfter = List.of();
+                while (true) {
+                    String currentPitId = pitId;
+                    List<FieldValue> after = searchAfter;
+                    SearchResponse<Void> response = elasticsearchClient.search(s -> {
+                        s.pit(p -> p.id(currentPitId).keepAlive(k -> k.time(KEEP_ALIVE)))
+                                .query(q -> q
+                                        .term(t -> t
+                                                .field(fieldName)
+                                                .value(fieldValue)
+                                        )
+                                )
+                                .source(src -> src.fetch(false))
+                                .sort(so -> so.field(f -> f.field("_shard_doc")))
+                                .size(PAGE_SIZE)
+                                .trackTotalHits(t -> t.enabled(false));
+                        if (!after.isEmpty()) {
+                            s.searchAfter(after);
+                        }
+                        return s;
+                    }, Void.class);
+                    if (response.pitId() != null) {
+                        pitId = response.pitId();
+                    }
+                    List<Hit<Void>> hits = response.hits().hits();
+                    for (Hit<Void> hit : hits) {
+                        ids.add(hit.id());
+                    }
+                    if (hits.size() < PAGE_SIZE) {
+                        return ids;
+                    }
+                    searchAfter = hits.getLast().sort();
+                }
+            } finally {
+                String closedPitId = pitId;
+                elasticsearchClient.closePointInTime(c -> c.id(closedPitId));
+            }
+        } catch (IOException e) {
+            throw new ElasticOperationException("An exception occurred while searching documents", e);
+        }
+    }
+
     /**
      * Deletes all documents in a specified index where a given field has a particular value.
      *
@@ -78,4 +176,31 @@ public class ElasticDocumentManager {
             throw new ElasticOperationException("An exception occurred during document removal", e);
         }
     }
+
+    /**
+     * Deletes all documents in a specified index where a given field has any of the given values.
+     *
+     * @param indexName     the name of the index from which documents are to be deleted
+     * @param fieldName     the name of the field to be checked in each document
+     * @param fieldValues   the values of the field which, if matched, will result in the deletion of the document
+     */
+    public void deleteByFieldValues(String indexName, String fieldName, Collection<String> fieldValues) {
+        List<FieldValue> values = fieldValues.stream()
+                .map(FieldValue::of)
+                .toList();
+        try {
+            elasticsearchClient.deleteByQuery(d -> d
+                    .index(indexName)
+                    .ignoreUnavailable(true)
+                    .query(q -> q
+                            .terms(t -> t
+                                    .field(fieldName)
+                                    .terms(v -> v.value(values))
+                            )
+                    )
+            );
+        } catch (IOException e) {
+            throw new ElasticOperationException("An exception occurred during document removal", e);
+        }
+    }
 }
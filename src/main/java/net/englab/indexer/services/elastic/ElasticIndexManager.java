@@ -1,21 +1,30 @@
 package net.englab.indexer.services.elastic;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.HealthStatus;
 import co.elastic.clients.elasticsearch._types.mapping.DynamicMapping;
 import co.elastic.clients.elasticsearch._types.mapping.Property;
 import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
 import co.elastic.clients.elasticsearch.indices.GetMappingResponse;
 import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.TranslogDurability;
 import co.elastic.clients.elasticsearch.indices.get_mapping.IndexMappingRecord;
 import co.elastic.clients.json.JsonData;
+import co.elastic.clients.transport.TransportException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.englab.common.search.exceptions.ElasticOperationException;
+import net.englab.indexer.configs.IndexerProperties;
+import net.englab.indexer.metrics.IndexerMetrics;
+import org.elasticsearch.client.ResponseException;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Provides operations that are related to Elasticsearch indices
@@ -25,8 +34,12 @@ import java.util.Optional;
 @Service
 @RequiredArgsConstructor
 public class ElasticIndexManager {
+    // how often the status of a force merge task is checked
+    private static final Duration MERGE_POLL_INTERVAL = Duration.ofSeconds(5);
 
     private final ElasticsearchClient elasticsearchClient;
+    private final IndexerProperties properties;
+    private final IndexerMetrics metrics;
 
     /**
      * Checks if the given index exists.
@@ -36,8 +49,8 @@ public class ElasticIndexManager {
      */
     public boolean exists(String indexName) {
         try {
-            var response = elasticsearchClient.indices()
-                    .exists(b -> b.index(indexName));
+            var response = timed("exists", () -> elasticsearchClient.indices()
+                    .exists(b -> b.index(indexName)));
             return response.value();
         } catch (IOException e) {
             throw new ElasticOperationException("An exception occurred while checking the existence of an index", e);
@@ -45,29 +58,163 @@ public class ElasticIndexManager {
     }
 
     /**
-     * Creates a new index with the given name.
+     * Creates a new index with the given name and the live settings.
      *
      * @param indexName     the name of the index to create
      * @param properties    the mapping properties
      */
     public void create(String indexName, Map<String, Property> properties) {
+        create(indexName, properties, liveSettings());
+    }
+
+    /**
+     * Creates a new index with the given name and the settings optimised for bulk loading.
+     * Refreshes are disabled, there are no replicas, and the translog is synced asynchronously.
+     * Such an index must not be used for search until {@link #applyLiveSettings(String)} is called.
+     *
+     * @param indexName     the name of the index to create
+     * @param properties    the mapping properties
+     */
+    public void createForBulkLoad(String indexName, Map<String, Property> properties) {
+        create(indexName, properties, IndexSettings.of(s -> s
+                .refreshInterval(t -> t.time("-1"))
+                .numberOfReplicas("0")
+                .translog(t -> t.durability(TranslogDurability.Async))
+        ));
+    }
+
+    private void create(String indexName, Map<String, Property> properties, IndexSettings settings) {
         try {
             if (!exists(indexName)) {
-                elasticsearchClient.indices()
+                timed("create", () -> elasticsearchClient.indices()
                         .create(b -> b
                                 .index(indexName)
-                                .settings(IndexSettings.of(s -> s.refreshInterval(t -> t.time("1s"))))
+                                .settings(settings)
                                 .mappings(m -> m
                                         .properties(properties)
                                         .dynamic(DynamicMapping.Strict)
                                 )
-                        );
+                        ));
             }
         } catch (IOException e) {
             throw new ElasticOperationException("An exception occurred during index creation", e);
         }
     }
 
+    private IndexSettings liveSettings() {
+        IndexerProperties.Index settings = properties.index();
+        return IndexSettings.of(s -> s
+                .refreshInterval(t -> t.time(settings.refreshInterval()))
+                .numberOfReplicas(String.valueOf(settings.replicas()))
+                .translog(t -> t.durability(TranslogDurability.Request))
+        );
+    }
+
+    /**
+     * Applies the live settings to the given index. It's used to make an index
+     * that has been created for bulk loading ready for search.
+     *
+     * @param indexName the name of the index
+     */
+    public void applyLiveSettings(String indexName) {
+        try {
+            timed("put_settings", () -> elasticsearchClient.indices().putSettings(s -> s
+                    .index(indexName)
+                    .settings(liveSettings())
+            ));
+        } catch (IOException e) {
+            throw new ElasticOperationException("An exception occurred while updating index settings", e);
+        }
+    }
+
+    /**
+     * Waits until all the shards of the given index, including replicas, are allocated.
+     *
+     * @param indexName the name of the index
+     * @throws ElasticOperationException if the index has not become green in time
+     */
+    public void waitForGreen(String indexName) {
+        Instant deadline = Instant.now().plus(properties.index().greenTimeout());
+        try {
+            while (true) {
+                try {
+                    // the request timeout must be shorter than the socket timeout of the client
+                    var response = timed("health", () -> elasticsearchClient.cluster().health(h -> h
+                            .index(indexName)
+                            .waitForStatus(HealthStatus.Green)
+                            .timeout(t -> t.time("20s"))
+                    ));
+                    if (!response.timedOut()) {
+                        return;
+                    }
+                } catch (IOException e) {
+                    // the cluster responds with 408 if the status has not been reached within the request timeout
+                    if (!isRequestTimeout(e)) {
+                        throw e;
+                    }
+                }
+                if (Instant.now().isAfter(deadline)) {
+                    throw new ElasticOperationException("The index has not become green in time",
+                            new TimeoutException("The index is still not green after " + properties.index().greenTimeout()));
+                }
+            }
+        } catch (IOException e) {
+            throw new ElasticOperationException("An exception occurred while waiting for the index to become green", e);
+        }
+    }
+
+    /**
+     * Merges the segments of the given index and refreshes it afterwards.
+     * The merge runs as a background task, and the method polls the task until it's completed.
+     *
+     * @param indexName         the name of the index
+     * @param maxNumSegments    the number of segments the index should be merged into
+     * @throws ElasticOperationException if the merge has not been completed in time
+     */
+    public void forceMerge(String indexName, int maxNumSegments) {
+        try {
+            String task = timed("force_merge", () -> elasticsearchClient.indices().forcemerge(f -> f
+                    .index(indexName)
+                    .maxNumSegments((long) maxNumSegments)
+                    .waitForCompletion(false)
+            )).task();
+            if (task != null) {
+                // waiting for the task on the server side ends with an error when the wait times out,
+                // so the task is polled without waiting instead
+                Instant deadline = Instant.now().plus(properties.index().mergeTimeout());
+                while (!timed("get_task", () -> elasticsearchClient.tasks().get(t -> t
+                        .taskId(task)
+                        .waitForCompletion(false)
+                )).completed()) {
+                    if (Instant.now().isAfter(deadline)) {
+                        throw new ElasticOperationException("The index has not been merged in time",
+                                new TimeoutException("The force merge task " + task + " is still running"));
+                    }
+                    Thread.sleep(MERGE_POLL_INTERVAL.toMillis());
+                }
+            }
+        } catch (IOException e) {
+            throw new ElasticOperationException("An exception occurred during force merge", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticOperationException("The force merge has been interrupted", e);
+        }
+        refresh(indexName);
+    }
+
+    /**
+     * Refreshes the given index, so all the indexed documents become visible for search.
+     *
+     * @param indexName the name of the index
+     */
+    public void refresh(String indexName) {
+        try {
+            timed("refresh", () -> elasticsearchClient.indices().refresh(r -> r.index(indexName)));
+        } catch (IOException e) {
+            throw new ElasticOperationException("An exception occurred during index refresh", e);
+        }
+    }
+
     /**
      * Deletes the index with the given name.
      *
@@ -75,10 +222,10 @@ public class ElasticIndexManager {
      */
     public void delete(String indexName) {
         try {
-            elasticsearchClient.indices().delete(d -> d
+            timed("delete", () -> elasticsearchClient.indices().delete(d -> d
                     .index(indexName)
                     .ignoreUnavailable(true)
-            );
+            ));
         } catch (IOException e) {
             throw new ElasticOperationException("An exception occurred during index deletion", e);
         }
@@ -96,8 +243,8 @@ public class ElasticIndexManager {
             if (!exists(indexName)) {
                 return Map.of();
             }
-            var response = elasticsearchClient.indices()
-                    .getMapping(m -> m.index(indexName));
+            var response = timed("get_mapping", () -> elasticsearchClient.indices()
+                    .getMapping(m -> m.index(indexName)));
             return Optional.of(response)
                     .map(this::findAnyIndexMapping)
                     .map(IndexMappingRecord::mappings)
@@ -122,10 +269,10 @@ public class ElasticIndexManager {
      */
     public void setMetadata(String index, Map<String, JsonData> metadata) {
         try {
-            elasticsearchClient.indices().putMapping(m -> m
+            timed("put_mapping", () -> elasticsearchClient.indices().putMapping(m -> m
                     .index(index)
                     .meta(metadata)
-            );
+            ));
         } catch (IOException e) {
             throw new ElasticOperationException("An exception occurred while setting metadata", e);
         }
@@ -139,8 +286,8 @@ public class ElasticIndexManager {
      */
     public void putAlias(String index, String alias) {
         try {
-            elasticsearchClient.indices()
-                    .putAlias(a -> a.index(index).name(alias));
+            timed("put_alias", () -> elasticsearchClient.indices()
+                    .putAlias(a -> a.index(index).name(alias)));
         } catch (IOException e) {
             throw new ElasticOperationException("An exception occurred while setting an alias", e);
         }
@@ -157,11 +304,41 @@ public class ElasticIndexManager {
             if (!exists(alias)) {
                 return Optional.empty();
             }
-            var response = elasticsearchClient.indices().get(b -> b.index(alias));
+            var response = timed("get", () -> elasticsearchClient.indices().get(b -> b.index(alias)));
             return response.result().keySet().stream()
                     .findAny();
         } catch (IOException e) {
             throw new ElasticOperationException("An exception occurred while getting an index name", e);
         }
     }
+
+    /**
+     * Checks if the exception is the 408 returned when the cluster health wait times out.
+     * The low-level client throws it as a {@link ResponseException}, and the transport
+     * may wrap it in a {@link TransportException}.
+     */
+    private static boolean isRequestTimeout(IOException e) {
+        return switch (e) {
+            case ResponseException re -> re.getResponse().getStatusLine().getStatusCode() == 408;
+            case TransportException te -> te.statusCode() == 408;
+            default -> false;
+        };
+    }
+
+    /**
+     * Runs the given Elasticsearch call and records how long it took.
+     */
+    private <T> T timed(String operation, ElasticCall<T> call) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return call.execute();
+        } finally {
+            metrics.recordAdmin(operation, System.nanoTime() - start);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ElasticCall<T> {
+        T execute() throws IOException;
+    }
 }
@@ -0,0 +1,40 @@
+package net.englab.indexer.subtitles;
+
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeMap;
+import com.google.common.collect.TreeRangeMap;
+import net.englab.common.search.models.subtitles.SubtitleSentence;
+
+/**
+ * A sentence extracted from subtitles, where the SRT entries the sentence appears in
+ * are stored in primitive arrays instead of a range map.
+ * <p>
+ * The piece of the sentence text in {@code [boundaries[i]..boundaries[i + 1])} appears
+ * in the SRT entry with index {@code entries[i]}, so there is one more boundary than entries.
+ *
+ * @param text       the sentence text
+ * @param position   the position of the sentence in its first SRT entry
+ * @param boundaries the sorted boundaries of the pieces of the text
+ * @param entries    the SRT entry indices of the pieces of the text
+ */
+public record ExtractedSentence(String text, int position, int[] boundaries, int[] entries) {
+
+    /**
+     * Converts the sentence into a subtitle sentence with a range map.
+     */
+    public SubtitleSentence toSubtitleSentence() {
+        return new SubtitleSentence(text, position, toRangeMap());
+    }
+
+    /**
+     * Builds a range map that shows in which SRT entry a specific piece of the sentence text appears.
+     * For example, [0..14) -> 0, [14..36) -> 1
+     */
+    public RangeMap<Integer, Integer> toRangeMap() {
+        RangeMap<Integer, Integer> rangeMap = TreeRangeMap.create();
+        for (int i = 0; i < entries.length; i++) {
+            rangeMap.put(Range.closedOpen(boundaries[i], boundaries[i + 1]), entries[i]);
+        }
+        return rangeMap;
+    }
+}
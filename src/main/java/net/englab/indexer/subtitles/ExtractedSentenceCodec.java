@@ -0,0 +1,118 @@
+package net.englab.indexer.subtitles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Converts extracted sentences to a compact binary form and back.
+ * <p>
+ * The data starts with the format version and the number of sentences. Every sentence is written as
+ * the length of its UTF-8 text, the text itself, its position, the number of its SRT entries,
+ * the boundaries of its pieces, and the entry indices. The boundaries and the entry indices are
+ * increasing, so only the differences between them are written. Everything is compressed with Deflate.
+ */
+public final class ExtractedSentenceCodec {
+    private static final int FORMAT_VERSION = 1;
+
+    private ExtractedSentenceCodec() {
+    }
+
+    /**
+     * Encodes the given sentences.
+     *
+     * @param sentences the sentences to encode
+     * @return the encoded sentences
+     */
+    public static byte[] encode(List<ExtractedSentence> sentences) {
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(new DeflaterOutputStream(byteStream))) {
+            output.writeByte(FORMAT_VERSION);
+            writeVarInt(output, sentences.size());
+            for (ExtractedSentence sentence : sentences) {
+                byte[] text = sentence.text().getBytes(StandardCharsets.UTF_8);
+                writeVarInt(output, text.length);
+                output.write(text);
+                writeVarInt(output, sentence.position());
+                int[] boundaries = sentence.boundaries();
+                int[] entries = sentence.entries();
+                writeVarInt(output, entries.length);
+                for (int i = 0; i < boundaries.length; i++) {
+                    writeVarInt(output, i == 0 ? boundaries[i] : boundaries[i] - boundaries[i - 1]);
+                }
+                for (int i = 0; i < entries.length; i++) {
+                    writeVarInt(output, i == 0 ? entries[i] : entries[i] - entries[i - 1]);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return byteStream.toByteArray();
+    }
+
+    /**
+     * Decodes the sentences encoded by {@link #encode(List)}.
+     *
+     * @param data the encoded sentences
+     * @return the decoded sentences
+     * @throws IllegalArgumentException if the data is in an unknown format
+     */
+    public static List<ExtractedSentence> decode(byte[] data) {
+        try (DataInputStream input = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)))) {
+            int version = input.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unknown format version of encoded sentences: " + version);
+            }
+            int size = readVarInt(input);
+            List<ExtractedSentence> sentences = new ArrayList<>(size);
+            for (int s = 0; s < size; s++) {
+                byte[] text = new byte[readVarInt(input)];
+                input.readFully(text);
+                int position = readVarInt(input);
+                int count = readVarInt(input);
+                int[] boundaries = new int[count + 1];
+                int[] entries = new int[count];
+                for (int i = 0; i < boundaries.length; i++) {
+                    boundaries[i] = readVarInt(input) + (i == 0 ? 0 : boundaries[i - 1]);
+                }
+                for (int i = 0; i < entries.length; i++) {
+                    entries[i] = readVarInt(input) + (i == 0 ? 0 : entries[i - 1]);
+                }
+                sentences.add(new ExtractedSentence(
+                        new String(text, StandardCharsets.UTF_8), position, boundaries, entries
+                ));
+            }
+            return sentences;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer.");
+    }
+}
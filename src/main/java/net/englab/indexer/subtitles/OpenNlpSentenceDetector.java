@@ -0,0 +1,73 @@
+package net.englab.indexer.subtitles;
+
+import lombok.SneakyThrows;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.util.Span;
+
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A sentence detector that is using Machine Learning to detect sentences correctly.
+ * <p>
+ * The class is thread-safe. The model is shared, but {@link SentenceDetectorME} is not thread-safe,
+ * so every detection borrows a detector from a bounded pool. When all the pooled detectors are in use,
+ * a new one is created from the same model, and it's kept only if there is room for it in the pool.
+ */
+public class OpenNlpSentenceDetector implements SentenceDetector {
+    private static final String MODEL_FILENAME = "/models/opennlp-en-ud-ewt-sentence-1.0-1.9.3.bin";
+    private final SentenceModel model;
+    private final BlockingQueue<SentenceDetectorME> pool;
+
+    public OpenNlpSentenceDetector() {
+        this(loadModel());
+    }
+
+    /**
+     * Creates a sentence detector that keeps up to one idle detector per available processor.
+     *
+     * @param model the shared sentence model
+     */
+    public OpenNlpSentenceDetector(SentenceModel model) {
+        this(model, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a sentence detector.
+     *
+     * @param model     the shared sentence model
+     * @param poolSize  the maximum number of idle detectors that are kept for reuse
+     */
+    public OpenNlpSentenceDetector(SentenceModel model, int poolSize) {
+        this.model = model;
+        this.pool = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    /**
+     * Loads the model for sentence detection from the classpath.
+     */
+    @SneakyThrows
+    public static SentenceModel loadModel() {
+        try (InputStream inputStream = OpenNlpSentenceDetector.class.getResourceAsStream(MODEL_FILENAME)) {
+            if (inputStream == null) {
+                throw new RuntimeException("Cannot load a model for sentence detection.");
+            }
+            return new SentenceModel(inputStream);
+        }
+    }
+
+    @Override
+    public Span[] detect(String text) {
+        SentenceDetectorME sentenceDetectorMe = pool.poll();
+        if (sentenceDetectorMe == null) {
+            sentenceDetectorMe = new SentenceDetectorME(model);
+        }
+        try {
+            return sentenceDetectorMe.sentPosDetect(text);
+        } finally {
+            pool.offer(sentenceDetectorMe);
+        }
+    }
+}
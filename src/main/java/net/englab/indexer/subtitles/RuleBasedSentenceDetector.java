@@ -0,0 +1,183 @@
+package net.englab.indexer.subtitles;
+
+import opennlp.tools.util.Span;
+
+import java.util.Arrays;
+
+/**
+ * A sentence detector that splits the text by hand-written rules tuned for subtitles.
+ * It's much faster than the Machine Learning one, but it's less accurate on unusual text.
+ * <p>
+ * A sentence ends with a run of terminators ({@code . ! ? …}), optionally followed by closing quotes
+ * or brackets, when the run is followed by a whitespace or the end of the text. A run with
+ * an exclamation or a question mark always ends a sentence. A run of periods and ellipses does not
+ * end a sentence when the next word starts with a lowercase letter, e.g. "It is cold ... freezing cold."
+ * A single period does not end a sentence after an abbreviation, an initial, or a word of short parts
+ * separated by periods, e.g. "Mr. Campbell", "C. M. Kosemen", or "a.k.a. Europe's Spaceport". A speaker dash
+ * after a terminator always starts a new sentence.
+ * <p>
+ * The text is scanned in a single pass without allocating anything but the resulting spans.
+ * The class is stateless, so it's thread-safe.
+ */
+public class RuleBasedSentenceDetector implements SentenceDetector {
+
+    // the abbreviations after which a period does not end a sentence, grouped by their length
+    private static final String[][] ABBREVIATIONS = groupByLength(
+            "Mr", "Mrs", "Ms", "Dr", "Prof", "St", "Jr", "Sr", "Mt", "vs", "Inc", "Ltd", "Co", "Corp",
+            "Gen", "Col", "Capt", "Lt", "Sgt", "Rev", "Gov", "Sen", "Rep", "Fig", "Ave",
+            "Jan", "Feb", "Apr", "Aug", "Sept", "Oct", "Nov", "Dec"
+    );
+
+    @Override
+    public Span[] detect(String text) {
+        int length = text.length();
+        // the start and end of every detected sentence
+        int[] bounds = new int[16];
+        int count = 0;
+
+        int start = skipWhitespace(text, 0);
+        int i = start;
+        while (i < length) {
+            if (!isTerminator(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int runStart = i;
+            boolean strong = false;
+            while (i < length && isTerminator(text.charAt(i))) {
+                char c = text.charAt(i);
+                strong |= c == '!' || c == '?';
+                i++;
+            }
+            int runEnd = i;
+            while (i < length && isClosing(text.charAt(i))) {
+                i++;
+            }
+            int end = i;
+            // the terminators are inside a word, e.g. "3.5" or "example.com",
+            // or they are the first thing in the sentence, e.g. "...is that you?"
+            if (end < length && !Character.isWhitespace(text.charAt(end)) || runStart == start) {
+                continue;
+            }
+            if (strong || endsSentence(text, runStart, runEnd, end)) {
+                if (count + 2 > bounds.length) {
+                    bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                }
+                bounds[count++] = start;
+                bounds[count++] = end;
+                start = skipWhitespace(text, end);
+                i = start;
+            }
+        }
+
+        // the rest of the text is a sentence even without a terminator
+        int end = length;
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (end > start) {
+            if (count + 2 > bounds.length) {
+                bounds = Arrays.copyOf(bounds, count + 2);
+            }
+            bounds[count++] = start;
+            bounds[count++] = end;
+        }
+
+        Span[] spans = new Span[count / 2];
+        for (int s = 0; s < spans.length; s++) {
+            spans[s] = new Span(bounds[2 * s], bounds[2 * s + 1]);
+        }
+        return spans;
+    }
+
+    /**
+     * Checks if the run of periods and ellipses in {@code [runStart..runEnd)} ends a sentence.
+     * The run is followed by closing quotes and brackets up to {@code end}.
+     */
+    private static boolean endsSentence(String text, int runStart, int runEnd, int end) {
+        if (runEnd - runStart == 1 && text.charAt(runStart) == '.') {
+            // a single period might belong to the word before it
+            int wordStart = runStart;
+            boolean innerPeriod = false;
+            int segmentLength = 0;
+            int maxSegmentLength = 0;
+            while (wordStart > 0) {
+                char c = text.charAt(wordStart - 1);
+                if (c == '.') {
+                    innerPeriod = true;
+                    segmentLength = 0;
+                } else if (Character.isLetter(c)) {
+                    maxSegmentLength = Math.max(maxSegmentLength, ++segmentLength);
+                } else {
+                    break;
+                }
+                wordStart--;
+            }
+            int wordLength = runStart - wordStart;
+            // "a.k.a." and "U.S." are abbreviations, but "example.com." is not
+            boolean dottedAbbreviation = innerPeriod && maxSegmentLength <= 2;
+            boolean initial = wordLength == 1 && Character.isUpperCase(text.charAt(wordStart));
+            if (dottedAbbreviation || initial || isAbbreviation(text, wordStart, wordLength)) {
+                return false;
+            }
+        }
+
+        // look at the first letter of the next word
+        int length = text.length();
+        int next = skipWhitespace(text, end);
+        while (next < length && (isOpening(text.charAt(next)) || isTerminator(text.charAt(next)))) {
+            next++;
+        }
+        if (next == length || isDash(text.charAt(next))) {
+            return true;
+        }
+        return !Character.isLowerCase(text.charAt(next));
+    }
+
+    private static boolean isAbbreviation(String text, int start, int length) {
+        if (length >= ABBREVIATIONS.length) {
+            return false;
+        }
+        for (String abbreviation : ABBREVIATIONS[length]) {
+            if (text.regionMatches(start, abbreviation, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int skipWhitespace(String text, int index) {
+        while (index < text.length() && Character.isWhitespace(text.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean isTerminator(char c) {
+        return c == '.' || c == '!' || c == '?' || c == '…';
+    }
+
+    private static boolean isClosing(char c) {
+        return c == '"' || c == '\'' || c == '”' || c == '’' || c == ')' || c == ']' || c == '»';
+    }
+
+    private static boolean isOpening(char c) {
+        return c == '"' || c == '\'' || c == '“' || c == '‘' || c == '(' || c == '[' || c == '«';
+    }
+
+    private static boolean isDash(char c) {
+        return c == '-' || c == '–' || c == '—';
+    }
+
+    private static String[][] groupByLength(String... abbreviations) {
+        int maxLength = Arrays.stream(abbreviations).mapToInt(String::length).max().orElse(0);
+        String[][] groups = new String[maxLength + 1][];
+        for (int length = 0; length <= maxLength; length++) {
+            int wordLength = length;
+            groups[length] = Arrays.stream(abbreviations)
+                    .filter(abbreviation -> abbreviation.length() == wordLength)
+                    .toArray(String[]::new);
+        }
+        return groups;
+    }
+}
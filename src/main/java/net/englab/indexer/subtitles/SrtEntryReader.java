@@ -0,0 +1,450 @@
+package net.englab.indexer.subtitles;
+
+import net.englab.common.search.models.common.TimeFrame;
+import net.englab.common.search.models.subtitles.SrtEntry;
+import net.englab.indexer.exceptions.SrtFormatException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A streaming SRT parser that reads SRT entries one by one on demand.
+ * Only a small buffer of characters is kept in memory, so subtitles can be processed
+ * entry by entry without holding the whole text or all the parsed entries at once.
+ * <p>
+ * Lines can be terminated by LF, CR or CRLF, a leading BOM is skipped,
+ * and any number of blank lines is allowed between the entries. An entry may have no text at all.
+ * <p>
+ * The reader is not thread-safe.
+ */
+public class SrtEntryReader implements Iterator<SrtEntry>, Closeable {
+    private static final int BUFFER_SIZE = 8192;
+    // the maximum number of digits in a number, so it cannot overflow
+    private static final int MAX_DIGITS = 9;
+
+    private final Reader reader;
+    private char[] buffer;
+    // the position of the next unread character and the end of the read characters in the buffer
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+    // the last line has been terminated by CR at the end of the buffer, so it can be followed by LF
+    private boolean skipLf;
+
+    private int lineNumber;
+    // the bounds of the current line without its terminator
+    private int lineStart;
+    private int lineEnd;
+    // the position within the current line
+    private int cursor;
+
+    private SrtEntry nextEntry;
+
+    /**
+     * Receives the parts of SRT entries as they are parsed, so the entries can be stored
+     * in another form without creating {@link SrtEntry} objects.
+     */
+    interface EntryConsumer {
+        /**
+         * Receives the beginning of a new entry.
+         */
+        void entry(int id, double startTime, double endTime);
+
+        /**
+         * Receives a text line of the current entry. The characters are valid only during the call.
+         */
+        void line(char[] chars, int start, int end);
+    }
+
+    /**
+     * Creates a new SRT entry reader.
+     *
+     * @param reader the reader of the subtitles in the SRT format
+     */
+    public SrtEntryReader(Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[BUFFER_SIZE];
+    }
+
+    /**
+     * Creates a new SRT entry reader that reads the subtitles from the given string.
+     *
+     * @param srt text that represents subtitles in the SRT format
+     */
+    public static SrtEntryReader of(String srt) {
+        return new SrtEntryReader(new StringReader(srt));
+    }
+
+    /**
+     * Creates a new SRT entry reader that reads the subtitles from the given stream of UTF-8 bytes.
+     *
+     * @param inputStream the stream of the subtitles in the SRT format
+     */
+    public static SrtEntryReader of(InputStream inputStream) {
+        return new SrtEntryReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates a new SRT entry reader that reads the subtitles from the remaining UTF-8 bytes of the given buffer.
+     * The bytes are decoded as they are read, and the position of the buffer is advanced accordingly.
+     *
+     * @param byteBuffer the buffer of the subtitles in the SRT format
+     */
+    public static SrtEntryReader of(ByteBuffer byteBuffer) {
+        ReadableByteChannel channel = new ReadableByteChannel() {
+            private boolean open = true;
+
+            @Override
+            public int read(ByteBuffer dst) {
+                if (!byteBuffer.hasRemaining()) {
+                    return -1;
+                }
+                int length = Math.min(dst.remaining(), byteBuffer.remaining());
+                dst.put(byteBuffer.slice(byteBuffer.position(), length));
+                byteBuffer.position(byteBuffer.position() + length);
+                return length;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return open;
+            }
+
+            @Override
+            public void close() {
+                open = false;
+            }
+        };
+        return new SrtEntryReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Checks if there is one more SRT entry.
+     *
+     * @throws SrtFormatException if the next entry is not in the SRT format
+     * @throws UncheckedIOException if the subtitles cannot be read
+     */
+    @Override
+    public boolean hasNext() {
+        if (nextEntry == null) {
+            nextEntry = readEntry();
+        }
+        return nextEntry != null;
+    }
+
+    /**
+     * Reads the next SRT entry.
+     *
+     * @throws NoSuchElementException if there are no entries left
+     * @throws SrtFormatException if the next entry is not in the SRT format
+     * @throws UncheckedIOException if the subtitles cannot be read
+     */
+    @Override
+    public SrtEntry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        SrtEntry entry = nextEntry;
+        nextEntry = null;
+        return entry;
+    }
+
+    /**
+     * Closes the underlying reader.
+     *
+     * @throws UncheckedIOException if the reader cannot be closed
+     */
+    @Override
+    public void close() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private SrtEntry readEntry() {
+        EntryCollector collector = new EntryCollector();
+        return readEntry(collector) ? collector.toEntry() : null;
+    }
+
+    /**
+     * Reads the next SRT entry and passes its parts to the given consumer.
+     *
+     * @param consumer the consumer of the entry
+     * @return true if an entry has been read and false if there are no entries left
+     * @throws SrtFormatException if the next entry is not in the SRT format
+     * @throws UncheckedIOException if the subtitles cannot be read
+     */
+    boolean readEntry(EntryConsumer consumer) {
+        if (nextEntry != null) {
+            // the entry has been read ahead by the iterator
+            TimeFrame timeFrame = nextEntry.timeFrame();
+            consumer.entry(nextEntry.id(), timeFrame.startTime(), timeFrame.endTime());
+            for (String line : nextEntry.text()) {
+                char[] chars = line.toCharArray();
+                consumer.line(chars, 0, chars.length);
+            }
+            nextEntry = null;
+            return true;
+        }
+        if (!nextNonBlankLine()) {
+            return false;
+        }
+        int id = parseId();
+        if (!nextLine() || isBlankLine()) {
+            throw error("The time frame of the SRT entry " + id + " is missing");
+        }
+        skipWhitespaces();
+        double startTime = parseTimestamp();
+        skipWhitespaces();
+        if (cursor + 3 > lineEnd
+                || buffer[cursor] != '-' || buffer[cursor + 1] != '-' || buffer[cursor + 2] != '>') {
+            throw error("Expected '-->' between the start and end times");
+        }
+        cursor += 3;
+        skipWhitespaces();
+        double endTime = parseTimestamp();
+        skipWhitespaces();
+        if (cursor != lineEnd) {
+            throw error("Unexpected characters after the time frame");
+        }
+        consumer.entry(id, startTime, endTime);
+        // only an empty line ends the text, a line of whitespaces is a part of it
+        while (nextLine() && lineStart != lineEnd) {
+            replaceUnusualSeparators();
+            consumer.line(buffer, lineStart, lineEnd);
+        }
+        return true;
+    }
+
+    private boolean nextLine() {
+        // a BOM can precede the first line, and LF can follow CR that has ended the previous line
+        if (lineNumber == 0 || skipLf) {
+            if (position == limit) {
+                fill();
+            }
+            if (position < limit) {
+                char c = buffer[position];
+                if ((lineNumber == 0 && c == '\uFEFF') || (skipLf && c == '\n')) {
+                    position++;
+                }
+            }
+            skipLf = false;
+        }
+        int i = position;
+        while (true) {
+            while (i < limit && buffer[i] != '\n' && buffer[i] != '\r') {
+                i++;
+            }
+            if (i < limit || endOfInput) {
+                break;
+            }
+            i -= fill();
+        }
+        if (i == position && i == limit) {
+            return false;
+        }
+        lineStart = position;
+        lineEnd = i;
+        cursor = position;
+        if (i < limit) {
+            if (buffer[i++] == '\r') {
+                if (i < limit) {
+                    if (buffer[i] == '\n') {
+                        i++;
+                    }
+                } else {
+                    skipLf = true;
+                }
+            }
+        }
+        position = i;
+        lineNumber++;
+        return true;
+    }
+
+    /**
+     * Reads more characters into the buffer. The unread characters are moved
+     * to the beginning of the buffer, and the buffer grows if it's full.
+     *
+     * @return the number of positions the unread characters have been moved by
+     */
+    private int fill() {
+        int shift = position;
+        if (shift > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= shift;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        try {
+            int read = reader.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                endOfInput = true;
+            } else {
+                limit += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return shift;
+    }
+
+    private boolean nextNonBlankLine() {
+        while (nextLine()) {
+            if (!isBlankLine()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isBlankLine() {
+        for (int i = lineStart; i < lineEnd; i++) {
+            if (!Character.isWhitespace(buffer[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int parseId() {
+        skipWhitespaces();
+        int id = (int) parseNumber("SRT entry ID");
+        skipWhitespaces();
+        if (cursor != lineEnd) {
+            throw error("Invalid SRT entry ID");
+        }
+        return id;
+    }
+
+    /**
+     * Parses a timestamp in the HH:MM:SS,mmm format into seconds.
+     * The fraction of a second is optional and can be separated by a dot as well.
+     */
+    private double parseTimestamp() {
+        long hours = parseNumber("hours");
+        expect(':');
+        long minutes = parseNumber("minutes");
+        expect(':');
+        long seconds = parseNumber("seconds");
+        long nanos = 0;
+        if (cursor < lineEnd && (buffer[cursor] == ',' || buffer[cursor] == '.')) {
+            cursor++;
+            int digits = 0;
+            while (cursor < lineEnd && isDigit(buffer[cursor])) {
+                if (++digits > MAX_DIGITS) {
+                    throw error("Too many digits in the fraction of a second");
+                }
+                nanos = nanos * 10 + (buffer[cursor++] - '0');
+            }
+            if (digits == 0) {
+                throw error("Expected the fraction of a second");
+            }
+            for (; digits < MAX_DIGITS; digits++) {
+                nanos *= 10;
+            }
+        }
+        return hours * 3600 + minutes * 60 + seconds + nanos / 1_000_000_000.0;
+    }
+
+    private long parseNumber(String name) {
+        int start = cursor;
+        long number = 0;
+        while (cursor < lineEnd && isDigit(buffer[cursor])) {
+            number = number * 10 + (buffer[cursor++] - '0');
+        }
+        if (cursor == start) {
+            throw error("Expected the " + name);
+        }
+        if (cursor - start > MAX_DIGITS) {
+            throw error("The " + name + " number is too long");
+        }
+        return number;
+    }
+
+    /**
+     * Replaces all the separator characters of the current line, e.g. tabs
+     * or non-breaking spaces, with plain spaces. The line is not read again,
+     * so the characters are replaced right in the buffer.
+     */
+    private void replaceUnusualSeparators() {
+        for (int i = lineStart; i < lineEnd; i++) {
+            if (isUnusualSeparator(buffer[i])) {
+                buffer[i] = ' ';
+            }
+        }
+    }
+
+    private void expect(char c) {
+        if (cursor >= lineEnd || buffer[cursor] != c) {
+            throw error("Expected '" + c + "'");
+        }
+        cursor++;
+    }
+
+    private void skipWhitespaces() {
+        while (cursor < lineEnd && Character.isWhitespace(buffer[cursor])) {
+            cursor++;
+        }
+    }
+
+    private SrtFormatException error(String message) {
+        String line = new String(buffer, lineStart, lineEnd - lineStart);
+        return new SrtFormatException(message + " at line " + lineNumber + ", column "
+                + (cursor - lineStart + 1) + ": '" + line + "'");
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Checks if the given character is a whitespace or a Unicode separator other than a plain space.
+     */
+    private static boolean isUnusualSeparator(char c) {
+        return switch (c) {
+            case ' ' -> false;
+            case '\t', '\n', '\u000B', '\f', '\r' -> true;
+            default -> switch (Character.getType(c)) {
+                case Character.SPACE_SEPARATOR, Character.LINE_SEPARATOR, Character.PARAGRAPH_SEPARATOR -> true;
+                default -> false;
+            };
+        };
+    }
+
+    /**
+     * Collects the parts of an entry into an {@link SrtEntry}.
+     */
+    private static final class EntryCollector implements EntryConsumer {
+        private final List<String> text = new ArrayList<>();
+        private int id;
+        private TimeFrame timeFrame;
+
+        @Override
+        public void entry(int id, double startTime, double endTime) {
+            this.id = id;
+            this.timeFrame = new TimeFrame(startTime, endTime);
+        }
+
+        @Override
+        public void line(char[] chars, int start, int end) {
+            text.add(new String(chars, start, end - start));
+        }
+
+        private SrtEntry toEntry() {
+            return new SrtEntry(id, timeFrame, text);
+        }
+    }
+}
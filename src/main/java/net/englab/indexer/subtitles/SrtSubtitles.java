@@ -1,118 +1,236 @@
 package net.englab.indexer.subtitles;
 
-import lombok.SneakyThrows;
-import lombok.extern.slf4j.Slf4j;
 import net.englab.common.search.models.common.TimeFrame;
 import net.englab.common.search.models.subtitles.SrtEntry;
+import net.englab.indexer.exceptions.SrtFormatException;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.StringReader;
-import java.time.Duration;
-import java.util.*;
-import java.util.regex.Pattern;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
  * A class that parses SRT subtitles, providing various methods for the further processing of SRT entries.
+ * <p>
+ * The subtitles are stored in a compact columnar form: the text of all the lines is kept in one string,
+ * where every line is followed by a space, so the text of an entry is a contiguous piece of it
+ * with the lines already joined. The boundaries of the lines and entries, the IDs, and the times
+ * are kept in primitive arrays. {@link SrtEntry} objects are created only when they are requested.
  */
-@Slf4j
 public class SrtSubtitles implements Iterable<SrtEntry> {
-    // This pattern is used to replace any unusual separator characters with spaces
-    private static final Pattern SEPARATOR_PATTERN = Pattern.compile("[\\p{Z}\\s]");
-
-    private final List<SrtEntry> srtEntries;
+    private final int size;
+    private final int[] ids;
+    private final double[] startTimes;
+    private final double[] endTimes;
+    // the index of the first line of every entry, followed by the total number of lines
+    private final int[] entryLines;
+    // the offset of every line in the text, followed by the length of the text
+    private final int[] lineOffsets;
+    private final String text;
 
     /**
      * Create new SRT subtitles.
      *
      * @param srt text that represents subtitles in the SRT format
+     * @throws SrtFormatException if the text is not in the SRT format
      */
     public SrtSubtitles(String srt) {
-        srtEntries = parseSrtEntries(srt);
+        this(SrtEntryReader.of(srt));
     }
 
-    private static List<SrtEntry> parseSrtEntries(String srt) {
-        try (BufferedReader srtReader = new BufferedReader(new StringReader(srt))) {
-            List<SrtEntry> result = new ArrayList<>();
-
-            String line = srtReader.readLine();
-            while (line != null && !line.isBlank()) {
-                int id = Integer.parseInt(line);
-                TimeFrame timeFrame = parseTimeFrame(srtReader.readLine());
+    /**
+     * Create new SRT subtitles from all the entries that are left in the given reader.
+     * The reader is not closed.
+     *
+     * @param srtEntryReader the reader of SRT entries
+     * @throws SrtFormatException if the subtitles are not in the SRT format
+     */
+    public SrtSubtitles(SrtEntryReader srtEntryReader) {
+        Builder builder = new Builder();
+        while (srtEntryReader.readEntry(builder)) {
+            // the entries are stored by the builder
+        }
+        size = builder.size;
+        ids = Arrays.copyOf(builder.ids, size);
+        startTimes = Arrays.copyOf(builder.startTimes, size);
+        endTimes = Arrays.copyOf(builder.endTimes, size);
+        entryLines = Arrays.copyOf(builder.entryLines, size + 1);
+        entryLines[size] = builder.lines;
+        lineOffsets = Arrays.copyOf(builder.lineOffsets, builder.lines + 1);
+        lineOffsets[builder.lines] = builder.text.length();
+        text = builder.text.toString();
+    }
 
-                List<String> text = new ArrayList<>();
-                line = srtReader.readLine();
-                do {
-                    parseTextLine(line).ifPresent(text::add);
-                    line = srtReader.readLine();
-                } while (line != null && !line.isEmpty());
+    /**
+     * Returns a read-only iterator over the SRT entries.
+     */
+    @Override
+    public Iterator<SrtEntry> iterator() {
+        return new Iterator<>() {
+            private int index;
 
-                result.add(new SrtEntry(id, timeFrame, text));
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
 
-                line = srtReader.readLine();
+            @Override
+            public SrtEntry next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(index++);
             }
+        };
+    }
 
-            return result;
-        } catch (IOException e) {
-            log.error("Exception occurred while parsing subtitles", e);
-            throw new RuntimeException(e);
-        }
+    /**
+     * Returns a stream with the SRT entries as its source.
+     */
+    public Stream<SrtEntry> stream() {
+        return IntStream.range(0, size).mapToObj(this::get);
     }
 
-    @SneakyThrows
-    private static Optional<String> parseTextLine(String line) {
-        if (line != null) {
-            String text = SEPARATOR_PATTERN.matcher(line).replaceAll(" ");
-            return Optional.of(text);
-        }
-        return Optional.empty();
+    /**
+     * Returns the number of SRT entries.
+     */
+    public int size() {
+        return size;
     }
 
-    private static TimeFrame parseTimeFrame(String line) {
-        String[] timeInfo = line.split("-->");
-        double startTime = convertToSeconds(timeInfo[0].strip());
-        double endTime = convertToSeconds(timeInfo[1].strip());
-        return new TimeFrame(startTime, endTime);
+    /**
+     * Returns the SRT entry at the specified position.
+     * The entry is a view over the subtitles, so it's created on every call.
+     */
+    public SrtEntry get(int index) {
+        return new SrtEntry(ids[index], new TimeFrame(startTimes[index], endTimes[index]), new Lines(index));
     }
 
-    private static double convertToSeconds(String timeString) {
-        String formattedTimeString = "PT"
-                + timeString.replaceFirst(":", "H")
-                .replaceFirst(":", "M")
-                .replace(",", ".")
-                + "S";
+    /**
+     * Returns the start time of the SRT entry at the specified position in seconds.
+     */
+    public double startTime(int index) {
+        return startTimes[index];
+    }
 
-        Duration duration = Duration.parse(formattedTimeString);
-        return duration.getSeconds() + duration.getNano() / 1_000_000_000.0;
+    /**
+     * Returns the end time of the SRT entry at the specified position in seconds.
+     */
+    public double endTime(int index) {
+        return endTimes[index];
     }
 
     /**
-     * Returns a read-only iterator over the SRT entries.
+     * Returns the text lines of the SRT entry at the specified position joined with spaces.
      */
-    @Override
-    public Iterator<SrtEntry> iterator() {
-        return Collections.unmodifiableList(srtEntries).iterator();
+    public String text(int index) {
+        return text.substring(textStart(index), textEnd(index));
     }
 
     /**
-     * Returns a stream with the SRT entries as its source.
+     * Checks if the text of the SRT entry at the specified position is empty or contains only whitespaces.
      */
-    public Stream<SrtEntry> stream() {
-        return srtEntries.stream();
+    boolean isBlank(int index) {
+        for (int i = textStart(index), end = textEnd(index); i < end; i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
-     * Returns the number of SRT entries.
+     * Appends the text of the SRT entry at the specified position to the given builder.
      */
-    public int size() {
-        return srtEntries.size();
+    void appendText(int index, StringBuilder stringBuilder) {
+        stringBuilder.append(text, textStart(index), textEnd(index));
     }
 
     /**
-     * Returns the SRT entry at the specified position.
+     * Returns the total length of the text of all the entries.
      */
-    public SrtEntry get(int index) {
-        return srtEntries.get(index);
+    int textLength() {
+        return text.length();
+    }
+
+    private int textStart(int index) {
+        return lineOffsets[entryLines[index]];
+    }
+
+    private int textEnd(int index) {
+        int start = textStart(index);
+        // the last line of the entry is followed by a space that does not belong to the text
+        int end = lineOffsets[entryLines[index + 1]] - 1;
+        return Math.max(start, end);
+    }
+
+    /**
+     * The text lines of an SRT entry. The lines are cut from the text when they are requested.
+     */
+    private final class Lines extends AbstractList<String> {
+        private final int firstLine;
+        private final int size;
+
+        private Lines(int index) {
+            this.firstLine = entryLines[index];
+            this.size = entryLines[index + 1] - firstLine;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            int line = firstLine + index;
+            return text.substring(lineOffsets[line], lineOffsets[line + 1] - 1);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Builds the columns of the subtitles while the entries are being read.
+     */
+    private static final class Builder implements SrtEntryReader.EntryConsumer {
+        private static final int INITIAL_CAPACITY = 64;
+
+        private final StringBuilder text = new StringBuilder();
+        private int size;
+        private int lines;
+        private int[] ids = new int[INITIAL_CAPACITY];
+        private double[] startTimes = new double[INITIAL_CAPACITY];
+        private double[] endTimes = new double[INITIAL_CAPACITY];
+        private int[] entryLines = new int[INITIAL_CAPACITY];
+        private int[] lineOffsets = new int[INITIAL_CAPACITY];
+
+        @Override
+        public void entry(int id, double startTime, double endTime) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                startTimes = Arrays.copyOf(startTimes, capacity);
+                endTimes = Arrays.copyOf(endTimes, capacity);
+                entryLines = Arrays.copyOf(entryLines, capacity);
+            }
+            ids[size] = id;
+            startTimes[size] = startTime;
+            endTimes[size] = endTime;
+            entryLines[size] = lines;
+            size++;
+        }
+
+        @Override
+        public void line(char[] chars, int start, int end) {
+            if (lines == lineOffsets.length) {
+                lineOffsets = Arrays.copyOf(lineOffsets, lines * 2);
+            }
+            lineOffsets[lines++] = text.length();
+            text.append(chars, start, end - start).append(' ');
+        }
     }
 }
@@ -0,0 +1,342 @@
+package net.englab.indexer.subtitles;
+
+import net.englab.common.search.models.subtitles.SubtitleEntry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Converts subtitle entries to a compact binary form and back.
+ * <p>
+ * The data starts with a header that holds the format version, the compression method,
+ * the number of entries, and the length of the uncompressed body. Every entry is written in the body
+ * as the difference between its start time and the start time of the previous entry, its duration,
+ * the number of its lines, and the lines themselves as length-prefixed UTF-8. The times are rounded
+ * to milliseconds. The body is compressed with Deflate at the fastest level unless it's too short
+ * to benefit from it.
+ * <p>
+ * The decoded entries are lazy. Only the header is read when the data is decoded, the body is
+ * inflated and indexed on the first access, and an entry is created only when it's requested.
+ */
+public final class SubtitleEntryCodec {
+    private static final int FORMAT_VERSION = 1;
+    private static final int NO_COMPRESSION = 0;
+    private static final int DEFLATE = 1;
+    private static final int COMPRESSION_THRESHOLD = 256;
+
+    private SubtitleEntryCodec() {
+    }
+
+    /**
+     * Encodes the given subtitle entries. The entries that have been decoded by {@link #decode(byte[])}
+     * are returned in the form they have been decoded from without encoding them again.
+     *
+     * @param entries the subtitle entries to encode
+     * @return the encoded subtitle entries
+     */
+    public static byte[] encode(List<SubtitleEntry> entries) {
+        if (entries instanceof EncodedSubtitles encodedSubtitles) {
+            return encodedSubtitles.data;
+        }
+
+        ByteWriter body = new ByteWriter(entries.size() * 32);
+        long previousStart = 0;
+        for (SubtitleEntry entry : entries) {
+            long start = Math.round(entry.startTime() * 1000);
+            long end = Math.round(entry.endTime() * 1000);
+            // the entries may overlap or go out of order, so the differences are zigzag-encoded
+            body.writeVarLong(zigzag(start - previousStart));
+            body.writeVarLong(zigzag(end - start));
+            body.writeVarInt(entry.text().size());
+            for (String line : entry.text()) {
+                byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+                body.writeVarInt(bytes.length);
+                body.write(bytes, 0, bytes.length);
+            }
+            previousStart = start;
+        }
+
+        int compression = NO_COMPRESSION;
+        byte[] payload = body.buffer;
+        int payloadLength = body.size;
+        if (body.size >= COMPRESSION_THRESHOLD) {
+            byte[] deflated = deflate(body.buffer, body.size);
+            if (deflated.length < body.size) {
+                compression = DEFLATE;
+                payload = deflated;
+                payloadLength = deflated.length;
+            }
+        }
+
+        ByteWriter output = new ByteWriter(payloadLength + 16);
+        output.writeByte(FORMAT_VERSION);
+        output.writeByte(compression);
+        output.writeVarInt(entries.size());
+        output.writeVarInt(body.size);
+        output.write(payload, 0, payloadLength);
+        return Arrays.copyOf(output.buffer, output.size);
+    }
+
+    /**
+     * Decodes the subtitle entries encoded by {@link #encode(List)}. The returned list is immutable,
+     * and its entries are decoded lazily, so a malformed body is only detected when the entries are read.
+     *
+     * @param data the encoded subtitle entries
+     * @return the decoded subtitle entries
+     * @throws IllegalArgumentException if the data is in an unknown format
+     */
+    public static List<SubtitleEntry> decode(byte[] data) {
+        ByteReader header = new ByteReader(data, 0, data.length);
+        int version = header.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unknown format version of encoded subtitles: " + version);
+        }
+        int compression = header.readByte();
+        if (compression != NO_COMPRESSION && compression != DEFLATE) {
+            throw new IllegalArgumentException("Unknown compression method of encoded subtitles: " + compression);
+        }
+        int size = header.readVarInt();
+        int bodyLength = header.readVarInt();
+        if (compression == NO_COMPRESSION && bodyLength != data.length - header.position) {
+            throw new IllegalArgumentException("Unexpected length of encoded subtitles.");
+        }
+        return new EncodedSubtitles(data, compression, size, header.position, bodyLength);
+    }
+
+    private static byte[] deflate(byte[] bytes, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes, 0, length);
+            deflater.finish();
+            ByteWriter output = new ByteWriter(length / 2 + 64);
+            while (!deflater.finished()) {
+                output.ensureCapacity(1024);
+                output.size += deflater.deflate(output.buffer, output.size, output.buffer.length - output.size);
+            }
+            return Arrays.copyOf(output.buffer, output.size);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes, int offset, int length, int inflatedLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, offset, length);
+            byte[] inflated = new byte[inflatedLength];
+            int inflatedSize = inflater.inflate(inflated);
+            if (inflatedSize != inflatedLength || !inflater.finished()) {
+                throw new IllegalArgumentException("Malformed body of encoded subtitles.");
+            }
+            return inflated;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Malformed body of encoded subtitles.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * An immutable list of encoded subtitle entries. The body is indexed into primitive arrays
+     * on the first access, and the entries are created from the arrays on demand.
+     */
+    private static final class EncodedSubtitles extends AbstractList<SubtitleEntry> implements RandomAccess {
+        private final byte[] data;
+        private final int compression;
+        private final int size;
+        private final int bodyOffset;
+        private final int bodyLength;
+        private volatile Index index;
+
+        private EncodedSubtitles(byte[] data, int compression, int size, int bodyOffset, int bodyLength) {
+            this.data = data;
+            this.compression = compression;
+            this.size = size;
+            this.bodyOffset = bodyOffset;
+            this.bodyLength = bodyLength;
+        }
+
+        @Override
+        public SubtitleEntry get(int i) {
+            Objects.checkIndex(i, size);
+            Index index = index();
+            String[] lines = new String[index.firstLines[i + 1] - index.firstLines[i]];
+            for (int j = 0; j < lines.length; j++) {
+                int line = index.firstLines[i] + j;
+                lines[j] = new String(index.body, index.lineOffsets[line], index.lineLengths[line],
+                        StandardCharsets.UTF_8);
+            }
+            return new SubtitleEntry(index.startTimes[i] / 1000.0, index.endTimes[i] / 1000.0, List.of(lines));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        private Index index() {
+            // the index is immutable, so it's fine if several threads build it at the same time
+            Index index = this.index;
+            if (index == null) {
+                index = buildIndex();
+                this.index = index;
+            }
+            return index;
+        }
+
+        private Index buildIndex() {
+            byte[] body;
+            int offset;
+            if (compression == DEFLATE) {
+                body = inflate(data, bodyOffset, data.length - bodyOffset, bodyLength);
+                offset = 0;
+            } else {
+                body = data;
+                offset = bodyOffset;
+            }
+
+            ByteReader reader = new ByteReader(body, offset, offset + bodyLength);
+            long[] startTimes = new long[size];
+            long[] endTimes = new long[size];
+            int[] firstLines = new int[size + 1];
+            int[] lineOffsets = new int[size];
+            int[] lineLengths = new int[size];
+            int lineCount = 0;
+            long previousStart = 0;
+            for (int i = 0; i < size; i++) {
+                startTimes[i] = previousStart + unzigzag(reader.readVarLong());
+                endTimes[i] = startTimes[i] + unzigzag(reader.readVarLong());
+                previousStart = startTimes[i];
+                int lines = reader.readVarInt();
+                if (lineCount + lines > lineOffsets.length) {
+                    int capacity = Math.max(lineOffsets.length * 2, lineCount + lines);
+                    lineOffsets = Arrays.copyOf(lineOffsets, capacity);
+                    lineLengths = Arrays.copyOf(lineLengths, capacity);
+                }
+                for (int j = 0; j < lines; j++) {
+                    lineLengths[lineCount] = reader.readVarInt();
+                    lineOffsets[lineCount] = reader.skip(lineLengths[lineCount]);
+                    lineCount++;
+                }
+                firstLines[i + 1] = lineCount;
+            }
+            if (reader.position != reader.limit) {
+                throw new IllegalArgumentException("Malformed body of encoded subtitles.");
+            }
+            return new Index(body, startTimes, endTimes, firstLines, lineOffsets, lineLengths);
+        }
+    }
+
+    /**
+     * The decoded body of the encoded subtitles. The lines of the entry {@code i} are the lines
+     * from {@code firstLines[i]} to {@code firstLines[i + 1]}, and their text is kept in the body as UTF-8.
+     */
+    private record Index(byte[] body, long[] startTimes, long[] endTimes,
+                         int[] firstLines, int[] lineOffsets, int[] lineLengths) {
+    }
+
+    private static final class ByteWriter {
+        private byte[] buffer;
+        private int size;
+
+        private ByteWriter(int capacity) {
+            buffer = new byte[Math.max(capacity, 16)];
+        }
+
+        private void ensureCapacity(int length) {
+            if (size + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[size++] = (byte) value;
+        }
+
+        private void write(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, buffer, size, length);
+            size += length;
+        }
+
+        private void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+    }
+
+    private static final class ByteReader {
+        private final byte[] bytes;
+        private final int limit;
+        private int position;
+
+        private ByteReader(byte[] bytes, int position, int limit) {
+            this.bytes = bytes;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        private int readByte() {
+            if (position >= limit) {
+                throw new IllegalArgumentException("Unexpected end of encoded subtitles.");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        private int readVarInt() {
+            long value = readVarLong();
+            if (value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Malformed variable-length integer.");
+            }
+            return (int) value;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed variable-length integer.");
+        }
+
+        /**
+         * Skips the given number of bytes and returns the position they start at.
+         */
+        private int skip(int length) {
+            if (length > limit - position) {
+                throw new IllegalArgumentException("Unexpected end of encoded subtitles.");
+            }
+            int start = position;
+            position += length;
+            return start;
+        }
+    }
+}
@@ -1,22 +1,72 @@
 package net.englab.indexer.subtitles;
 
-import com.google.common.collect.Range;
-import com.google.common.collect.RangeMap;
-import com.google.common.collect.TreeRangeMap;
-import net.englab.common.search.models.subtitles.SrtEntry;
 import net.englab.common.search.models.subtitles.SubtitleSentence;
+import net.englab.indexer.text.TextTransformations;
 import opennlp.tools.util.Span;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * A class that is used to extract sentences from subtitles in the SRT format.
+ * It's thread-safe as long as its sentence detector is.
+ * <p>
+ * The text of long subtitles is split into chunks at the boundaries of SRT entries, and sentences
+ * are detected in the chunks in parallel on the given chunk executor. Every chunk is extended
+ * by an overlap window on both sides, so the detector sees the context around the edges of the chunk,
+ * but only the sentence ends that lie within the chunk itself are taken from it. The sentences
+ * are then rebuilt from the ends, which gives the same result as detecting sentences in the whole text
+ * at once.
  */
 public class SubtitleSentenceExtractor {
+    public static final int DEFAULT_CHUNK_SIZE = 65_536;
+    public static final int DEFAULT_CHUNK_OVERLAP = 2_048;
 
-    private final SentenceDetector sentenceDetector = new SentenceDetector();
+    private final SentenceDetector sentenceDetector;
+    private final int chunkSize;
+    private final int chunkOverlap;
+    private final Executor chunkExecutor;
+
+    public SubtitleSentenceExtractor() {
+        this(new OpenNlpSentenceDetector());
+    }
+
+    public SubtitleSentenceExtractor(SentenceDetector sentenceDetector) {
+        this(sentenceDetector, DEFAULT_CHUNK_SIZE, DEFAULT_CHUNK_OVERLAP);
+    }
+
+    /**
+     * Creates a sentence extractor that detects sentences in the chunks of long subtitles one by one.
+     *
+     * @param sentenceDetector  the detector that splits the text into sentences
+     * @param chunkSize         the number of characters after which the text is split into chunks
+     * @param chunkOverlap      the number of characters a chunk is extended by on both sides
+     */
+    public SubtitleSentenceExtractor(SentenceDetector sentenceDetector, int chunkSize, int chunkOverlap) {
+        this(sentenceDetector, chunkSize, chunkOverlap, Runnable::run);
+    }
+
+    /**
+     * Creates a sentence extractor that detects sentences in the chunks of long subtitles in parallel.
+     * The calling thread always takes the first chunk, so the executor only needs threads for the rest.
+     *
+     * @param sentenceDetector  the detector that splits the text into sentences
+     * @param chunkSize         the number of characters after which the text is split into chunks
+     * @param chunkOverlap      the number of characters a chunk is extended by on both sides
+     * @param chunkExecutor     the executor that detects sentences in the chunks,
+     *                          its tasks never wait for each other, so it may have any number of threads
+     */
+    public SubtitleSentenceExtractor(SentenceDetector sentenceDetector, int chunkSize, int chunkOverlap,
+                                     Executor chunkExecutor) {
+        this.sentenceDetector = sentenceDetector;
+        this.chunkSize = chunkSize;
+        this.chunkOverlap = chunkOverlap;
+        this.chunkExecutor = chunkExecutor;
+    }
 
     /**
      * Extracts sentences from the given SRT subtitles.
@@ -25,96 +75,244 @@ public class SubtitleSentenceExtractor {
      * @return a collection of subtitle sentences
      */
     public List<SubtitleSentence> extract(SrtSubtitles srtSubtitles) {
-        StringBuilder stringBuilder = new StringBuilder();
-
-        // character position -> SRT entry index
-        // the range map shows in which SRT entry a specific piece of text appears
-        RangeMap<Integer, Integer> textRangeMap = TreeRangeMap.create();
+        return toSubtitleSentences(extractSentences(srtSubtitles));
+    }
 
-        // concatenate all the text into one string and build a range map for it
-        for (int entryIndex = 0; entryIndex < srtSubtitles.size(); entryIndex++) {
-            SrtEntry srtEntry = srtSubtitles.get(entryIndex);
+    /**
+     * Extracts sentences from the given SRT subtitles, keeping the SRT entries of every sentence
+     * in primitive arrays. The sentences can be converted into subtitle sentences when they are needed.
+     *
+     * @param srtSubtitles the subtitles in the SRT format
+     * @return a collection of extracted sentences
+     */
+    public List<ExtractedSentence> extractSentences(SrtSubtitles srtSubtitles) {
+        return extractSentences(srtSubtitles, false);
+    }
 
-            int lower = stringBuilder.length();
+    /**
+     * Extracts sentences from the given SRT subtitles, keeping the SRT entries of every sentence
+     * in primitive arrays. Sound descriptions can be removed from the sentences on the way,
+     * in which case they are masked in one pass over the text of the whole video,
+     * so the characters of the sentences are copied only once.
+     *
+     * @param srtSubtitles              the subtitles in the SRT format
+     * @param removeSoundDescriptions   whether sound descriptions should be removed from the sentences,
+     *                                  see {@link TextTransformations#removeSoundDescriptions(String)}
+     * @return a collection of extracted sentences
+     */
+    public List<ExtractedSentence> extractSentences(SrtSubtitles srtSubtitles, boolean removeSoundDescriptions) {
+        int size = srtSubtitles.size();
+        StringBuilder stringBuilder = new StringBuilder(srtSubtitles.textLength());
+        EntryOffsets entryOffsets = new EntryOffsets(size);
 
-            String entryText = String.join(" ", srtEntry.text());
-            if (!entryText.isBlank()) {
-                stringBuilder.append(entryText);
-                if (entryIndex < srtSubtitles.size() - 1) {
+        // the text of the entries is already joined, so it's copied as is without creating SRT entries
+        for (int i = 0; i < size; i++) {
+            if (!srtSubtitles.isBlank(i)) {
+                entryOffsets.add(stringBuilder.length(), i);
+                srtSubtitles.appendText(i, stringBuilder);
+                if (i < size - 1) {
                     stringBuilder.append(" ");
                 }
             }
-
-            int upper = stringBuilder.length();
-
-            textRangeMap.put(Range.closedOpen(lower, upper), entryIndex);
         }
 
-        String text = stringBuilder.toString();
+        return extractSentences(stringBuilder.toString(), entryOffsets, removeSoundDescriptions);
+    }
+
+    /**
+     * Detects sentences in the given text and finds the SRT entries they appear in.
+     */
+    private List<ExtractedSentence> extractSentences(String text, EntryOffsets entryOffsets,
+                                                     boolean removeSoundDescriptions) {
+        Span[] spans = text.length() > chunkSize
+                ? detectInChunks(text, entryOffsets)
+                : sentenceDetector.detect(text);
 
-        Span[] spans = sentenceDetector.detect(text);
+        // sound descriptions are masked after the detection, since they may contain sentence ends,
+        // and only within the sentences, since they have never been removed across sentences
+        char[] chars = removeSoundDescriptions ? text.toCharArray() : null;
 
         // go through the detected sentences and build the result collection
-        List<SubtitleSentence> sentences = new ArrayList<>();
+        List<ExtractedSentence> sentences = new ArrayList<>(spans.length);
         for (Span span : spans) {
-            String sentenceText = text.substring(span.getStart(), span.getEnd());
+            int start = span.getStart();
+            int end = span.getEnd();
+
+            // the text of the entries follows one after another without gaps,
+            // so the entries of the sentence are the ones between its first and last characters
+            int first = entryOffsets.find(start);
+            int last = end > start ? entryOffsets.find(end - 1) : first - 1;
+            int count = last - first + 1;
+
+            // the boundaries are shifted to zero, so they are relative to the beginning of the sentence
+            int[] boundaries = new int[count + 1];
+            int[] entries = new int[count];
+            for (int i = 0; i < count; i++) {
+                boundaries[i] = Math.max(entryOffsets.starts[first + i], start) - start;
+                entries[i] = entryOffsets.entries[first + i];
+            }
+            boundaries[count] = end - start;
 
-            Range<Integer> sentenceRange = Range.closedOpen(span.getStart(), span.getEnd());
-            RangeMap<Integer, Integer> sentenceRangeMap = normalizeRangeMap(textRangeMap.subRangeMap(sentenceRange));
+            int sentencePosition = start - entryOffsets.starts[first];
 
-            int sentencePosition = findSentencePosition(textRangeMap, span);
+            String sentenceText;
+            if (chars != null) {
+                TextTransformations.maskSoundDescriptions(chars, start, end);
+                sentenceText = new String(chars, start, end - start);
+            } else {
+                sentenceText = text.substring(start, end);
+            }
 
-            SubtitleSentence sentence = new SubtitleSentence(sentenceText, sentencePosition, sentenceRangeMap);
-            sentences.add(sentence);
+            sentences.add(new ExtractedSentence(sentenceText, sentencePosition, boundaries, entries));
         }
 
         return sentences;
     }
 
     /**
-     * Normalises the given range map by shifting all the ranges to zero.
-     * For example, if we have the following range map: [36..50) -> 0, [50..72) -> 1
-     * The normalised range map will be: [0..14) -> 0, [14..36) -> 1
+     * Detects sentences in the chunks of the text in parallel and stitches them together.
      */
-    private static RangeMap<Integer, Integer> normalizeRangeMap(RangeMap<Integer, Integer> rangeMap) {
-        RangeMap<Integer, Integer> normalizedRangeMap = TreeRangeMap.create();
-
-        int offset = -1;
-        var mapOfRanges = rangeMap.asMapOfRanges();
+    private Span[] detectInChunks(String text, EntryOffsets entryOffsets) {
+        int[] edges = chunkEdges(text.length(), entryOffsets);
+        List<CompletableFuture<int[]>> futures = new ArrayList<>(edges.length - 2);
+        for (int chunk = 1; chunk < edges.length - 1; chunk++) {
+            int start = edges[chunk];
+            int end = edges[chunk + 1];
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> detectEnds(text, entryOffsets, start, end), chunkExecutor));
+        }
+        int[][] chunkEnds = new int[edges.length - 1][];
+        chunkEnds[0] = detectEnds(text, entryOffsets, edges[0], edges[1]);
+        for (int chunk = 1; chunk < chunkEnds.length; chunk++) {
+            chunkEnds[chunk] = join(futures.get(chunk - 1));
+        }
 
-        for (var entry : mapOfRanges.entrySet()) {
-            Range<Integer> range = entry.getKey();
+        int count = 0;
+        for (int[] ends : chunkEnds) {
+            count += ends.length;
+        }
+        // the text between two sentence ends is a sentence without the leading whitespaces
+        Span[] spans = new Span[count];
+        int previousEnd = 0;
+        int index = 0;
+        for (int[] ends : chunkEnds) {
+            for (int end : ends) {
+                int start = previousEnd;
+                while (start < end && Character.isWhitespace(text.charAt(start))) {
+                    start++;
+                }
+                spans[index++] = new Span(start, end);
+                previousEnd = end;
+            }
+        }
+        return spans;
+    }
 
-            if (offset == -1) {
-                offset = entry.getKey().lowerEndpoint();
+    /**
+     * Splits the text into chunks of about the chunk size. The chunks start where SRT entries start,
+     * so a chunk edge never cuts a word in half.
+     *
+     * @return the edges of the chunks starting with zero and ending with the length of the text
+     */
+    private int[] chunkEdges(int length, EntryOffsets entryOffsets) {
+        int[] edges = new int[length / chunkSize + 2];
+        int count = 1;
+        int target = chunkSize;
+        while (target < length) {
+            int entry = entryOffsets.find(target);
+            if (entryOffsets.starts[entry] <= edges[count - 1]) {
+                // the entry is longer than a chunk, so the chunk ends with the next entry
+                entry++;
+            }
+            if (entry >= entryOffsets.size) {
+                break;
             }
+            if (count + 1 >= edges.length) {
+                edges = Arrays.copyOf(edges, edges.length * 2);
+            }
+            edges[count++] = entryOffsets.starts[entry];
+            target = edges[count - 1] + chunkSize;
+        }
+        edges[count++] = length;
+        return Arrays.copyOf(edges, count);
+    }
 
-            int recalculatedLowerEndpoint = range.lowerEndpoint() - offset;
-            int recalculatedUpperEndpoint = range.upperEndpoint() - offset;
+    /**
+     * Detects sentences in the chunk {@code [chunkStart..chunkEnd)} extended by the overlap window
+     * and returns the ends of the sentences that end within the chunk.
+     */
+    private int[] detectEnds(String text, EntryOffsets entryOffsets, int chunkStart, int chunkEnd) {
+        // the window starts and ends where SRT entries start, the first entry always starts at zero
+        int windowStart = entryOffsets.starts[entryOffsets.find(Math.max(0, chunkStart - chunkOverlap))];
+        int windowEnd = text.length();
+        if (chunkEnd < text.length()) {
+            int entry = entryOffsets.find(Math.min(text.length() - 1, chunkEnd + chunkOverlap)) + 1;
+            if (entry < entryOffsets.size) {
+                windowEnd = entryOffsets.starts[entry];
+            }
+        }
 
-            Range<Integer> recalculatedRange = Range.range(
-                    recalculatedLowerEndpoint, range.lowerBoundType(),
-                    recalculatedUpperEndpoint, range.upperBoundType()
-            );
+        Span[] spans = sentenceDetector.detect(text.substring(windowStart, windowEnd));
+        int[] ends = new int[spans.length];
+        int count = 0;
+        for (Span span : spans) {
+            int end = windowStart + span.getEnd();
+            if (end > chunkStart && end <= chunkEnd) {
+                ends[count++] = end;
+            }
+        }
+        return Arrays.copyOf(ends, count);
+    }
 
-            normalizedRangeMap.put(recalculatedRange, entry.getValue());
+    private static int[] join(CompletableFuture<int[]> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
         }
+    }
 
-        return normalizedRangeMap;
+    private static List<SubtitleSentence> toSubtitleSentences(List<ExtractedSentence> sentences) {
+        List<SubtitleSentence> subtitleSentences = new ArrayList<>(sentences.size());
+        for (ExtractedSentence sentence : sentences) {
+            subtitleSentences.add(sentence.toSubtitleSentence());
+        }
+        return subtitleSentences;
     }
 
     /**
-     * Calculates the position of the given sentence in its SRT entry.
+     * The positions in the text where the SRT entries start. Only the entries that have text are added,
+     * so the starts are strictly increasing, and the text of an entry lasts until the next one starts.
      */
-    private static int findSentencePosition(RangeMap<Integer, Integer> textRangeMap, Span span) {
-        var entry = textRangeMap.getEntry(span.getStart());
-        Objects.requireNonNull(entry);
-
-        int lowerEndpoint = entry.getKey().lowerEndpoint();
-        int sentencePosition = 0;
-        if (lowerEndpoint < span.getStart()) {
-            sentencePosition = span.getStart() - lowerEndpoint;
+    private static final class EntryOffsets {
+        private int size;
+        private int[] starts;
+        private int[] entries;
+
+        private EntryOffsets(int capacity) {
+            starts = new int[Math.max(capacity, 1)];
+            entries = new int[Math.max(capacity, 1)];
+        }
+
+        private void add(int start, int entry) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            starts[size] = start;
+            entries[size] = entry;
+            size++;
+        }
+
+        /**
+         * Finds the index of the entry the character at the given position belongs to.
+         */
+        private int find(int position) {
+            int index = Arrays.binarySearch(starts, 0, size, position);
+            return index >= 0 ? index : -index - 2;
         }
-        return sentencePosition;
     }
 }
@@ -3,17 +3,15 @@ package net.englab.indexer.text;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Arrays;
 
 /**
  * A utility class that contains useful text transformations.
  */
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class TextTransformations {
-
-    private static final String SOUND_DESCRIPTION_REGEX = "\\[.*?]|\\(.*?\\)|♫.*?♫|♪.*?♪|\\*.*?\\*";
-    private static final Pattern SOUND_DESCRIPTION_PATTERN = Pattern.compile(SOUND_DESCRIPTION_REGEX);
+    // the closing markers of sound descriptions, one for every kind of opening marker
+    private static final char[] CLOSING_MARKERS = {']', ')', '♫', '♪', '*'};
 
     /**
      * Removes all sound descriptions from the text.
@@ -34,14 +32,81 @@ public class TextTransformations {
      * @return the input text without sound descriptions
      */
     public static String removeSoundDescriptions(String text) {
-        Matcher matcher = SOUND_DESCRIPTION_PATTERN.matcher(text);
-        StringBuilder result = new StringBuilder(text);
-        while (matcher.find()) {
-            // Replace each character in the matched region with a space
-            for (int i = matcher.start(); i < matcher.end(); i++) {
-                result.setCharAt(i, '_');
+        char[] chars = text.toCharArray();
+        maskSoundDescriptions(chars, 0, chars.length);
+        return new String(chars);
+    }
+
+    /**
+     * Replaces all the sound descriptions within {@code [start..end)} of the given characters
+     * with the character '_' in place, see {@link #removeSoundDescriptions(String)}.
+     * <p>
+     * A sound description starts with an opening marker and ends with the nearest closing marker,
+     * e.g. "[" and "]", or "♪" and "♪". If there is no closing marker before the end of the range
+     * or a line terminator, the opening marker is left as is. The nearest closing marker or line terminator
+     * found for every kind of marker is remembered until the scan passes it, so the following opening
+     * markers of the same kind do not look ahead again, and every character is looked at no more than once
+     * per kind of marker, even if there are many unclosed opening markers.
+     * The markers never match outside the range, so the text of every sentence can be masked
+     * separately in one shared array.
+     *
+     * @param chars the characters to mask
+     * @param start the start of the range, inclusive
+     * @param end   the end of the range, exclusive
+     */
+    public static void maskSoundDescriptions(char[] chars, int start, int end) {
+        // the position of the nearest closing marker or line terminator for every kind of marker.
+        // Nothing can be masked before the scan passes it, so it stays valid until then.
+        int[] stops = new int[CLOSING_MARKERS.length];
+        int i = start;
+        while (i < end) {
+            int marker = marker(chars[i]);
+            if (marker >= 0) {
+                char closingMarker = CLOSING_MARKERS[marker];
+                if (stops[marker] <= i) {
+                    stops[marker] = findStop(chars, i + 1, end, closingMarker);
+                }
+                int j = stops[marker];
+                if (j < end && chars[j] == closingMarker) {
+                    Arrays.fill(chars, i, j + 1, '_');
+                    i = j + 1;
+                    continue;
+                }
             }
+            i++;
         }
-        return result.toString();
+    }
+
+    /**
+     * Finds the position of the nearest closing marker or line terminator, or the end of the range.
+     */
+    private static int findStop(char[] chars, int start, int end, char closingMarker) {
+        int i = start;
+        while (i < end && chars[i] != closingMarker && !isLineTerminator(chars[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the kind of the marker that opens a sound description, i.e. the index of its closing marker,
+     * or -1 if the character does not open a sound description.
+     */
+    private static int marker(char c) {
+        return switch (c) {
+            case '[' -> 0;
+            case '(' -> 1;
+            case '♫' -> 2;
+            case '♪' -> 3;
+            case '*' -> 4;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Checks if the character is a line terminator. Sound descriptions never span several lines.
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
     }
 }
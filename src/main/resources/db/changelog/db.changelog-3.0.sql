@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+--changeset nikitakuchur:1
+-- Hibernate allocates IDs in blocks of 50 using the pooled optimizer,
+-- so the sequence must be incremented by the same value
+ALTER SEQUENCE indexed_video_id_seq INCREMENT BY 50
@@ -0,0 +1,12 @@
+--liquibase formatted sql
+
+--changeset nikitakuchur:1
+CREATE TABLE IF NOT EXISTS indexing_job (
+    id SERIAL NOT NULL PRIMARY KEY,
+    index_name VARCHAR NOT NULL,
+    status VARCHAR NOT NULL,
+    start_time TIMESTAMP WITH TIME ZONE NOT NULL,
+    last_video_id BIGINT NOT NULL,
+    indexed_videos BIGINT NOT NULL,
+    indexed_docs BIGINT NOT NULL
+)
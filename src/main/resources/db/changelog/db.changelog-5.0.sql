@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+--changeset nikitakuchur:1
+-- The rows without a hash are treated as changed by the next incremental reindex
+ALTER TABLE indexed_video
+    ADD COLUMN IF NOT EXISTS content_hash VARCHAR
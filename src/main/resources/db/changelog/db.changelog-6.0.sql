@@ -0,0 +1,10 @@
+--liquibase formatted sql
+
+--changeset nikitakuchur:1
+CREATE TABLE IF NOT EXISTS video_change (
+    id SERIAL NOT NULL PRIMARY KEY,
+    type VARCHAR NOT NULL,
+    video_id BIGINT NOT NULL,
+    youtube_video_id VARCHAR,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL
+)
@@ -0,0 +1,11 @@
+--liquibase formatted sql
+
+--changeset nikitakuchur:1
+CREATE TABLE IF NOT EXISTS sentence_cache (
+    hash VARCHAR NOT NULL PRIMARY KEY,
+    data BYTEA NOT NULL,
+    used_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+--changeset nikitakuchur:2
+CREATE INDEX IF NOT EXISTS sentence_cache_used_at_idx ON sentence_cache (used_at)
@@ -0,0 +1,11 @@
+--liquibase formatted sql
+
+--changeset nikitakuchur:1
+ALTER TABLE indexed_video
+    ADD COLUMN IF NOT EXISTS encoded_subtitles BYTEA
+
+--changeset nikitakuchur:2
+-- New rows keep their subtitles only in the binary column,
+-- the JSON of the old rows is still read until they are reindexed
+ALTER TABLE indexed_video
+    ALTER COLUMN subtitles DROP NOT NULL
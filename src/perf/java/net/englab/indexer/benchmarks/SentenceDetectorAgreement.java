@@ -0,0 +1,123 @@
+package net.englab.indexer.benchmarks;
+
+import net.englab.indexer.subtitles.OpenNlpSentenceDetector;
+import net.englab.indexer.subtitles.RuleBasedSentenceDetector;
+import net.englab.indexer.subtitles.SentenceDetector;
+import net.englab.indexer.subtitles.SrtSubtitles;
+import opennlp.tools.util.Span;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Reports how closely the rule-based sentence detector matches the Machine Learning one.
+ * The detectors are compared on the fixtures of the sentence detection tests and on synthetic transcripts.
+ * The subtitles are joined into one text the same way the sentence extractor does it.
+ * <p>
+ * For every text, the report shows the number of sentences found by each detector, the number
+ * of sentences found by both with exactly the same bounds, and the precision and recall
+ * of the sentence ends of the rule-based detector, taking the Machine Learning detector as the reference.
+ * The speed of the detectors is measured by {@link SentenceDetectorBenchmark}.
+ * <pre>
+ * mvn -Pperf compile exec:exec@agreement
+ * </pre>
+ */
+public final class SentenceDetectorAgreement {
+    private static final String FIXTURES = "/sentences/fixtures.txt";
+    private static final String SECTION_PREFIX = "### ";
+
+    private SentenceDetectorAgreement() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        SentenceDetector reference = new OpenNlpSentenceDetector();
+        SentenceDetector candidate = new RuleBasedSentenceDetector();
+
+        Map<String, String> texts = loadFixtures();
+        for (SrtLength length : SrtLength.values()) {
+            texts.put("synthetic " + length.name().toLowerCase(), joinText(SrtFixtures.generate(length, 42)));
+        }
+
+        System.out.printf("%-36s %8s %8s %8s %10s %10s%n", "Text", "ML", "Rules", "Same", "Precision", "Recall");
+        int totalReference = 0;
+        int totalCandidate = 0;
+        int totalSame = 0;
+        int totalSameEnds = 0;
+        for (var entry : texts.entrySet()) {
+            Span[] referenceSpans = reference.detect(entry.getValue());
+            Span[] candidateSpans = candidate.detect(entry.getValue());
+            int same = intersection(bounds(referenceSpans), bounds(candidateSpans));
+            int sameEnds = intersection(ends(referenceSpans), ends(candidateSpans));
+            System.out.printf("%-36s %8d %8d %8d %10s %10s%n", entry.getKey(), referenceSpans.length,
+                    candidateSpans.length, same, percent(sameEnds, candidateSpans.length),
+                    percent(sameEnds, referenceSpans.length));
+            totalReference += referenceSpans.length;
+            totalCandidate += candidateSpans.length;
+            totalSame += same;
+            totalSameEnds += sameEnds;
+        }
+        System.out.printf("%-36s %8d %8d %8d %10s %10s%n", "Total", totalReference, totalCandidate, totalSame,
+                percent(totalSameEnds, totalCandidate), percent(totalSameEnds, totalReference));
+    }
+
+    /**
+     * Loads the fixtures. Every fixture starts with a line like {@code ### text name} or {@code ### srt name},
+     * the subtitles in the SRT format are joined into one text.
+     */
+    private static Map<String, String> loadFixtures() throws IOException {
+        String content;
+        try (InputStream inputStream = SentenceDetectorAgreement.class.getResourceAsStream(FIXTURES)) {
+            if (inputStream == null) {
+                throw new IOException("Cannot find the fixtures " + FIXTURES);
+            }
+            content = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        Map<String, String> texts = new LinkedHashMap<>();
+        for (String section : content.split("(?m)^" + SECTION_PREFIX)) {
+            if (section.isEmpty()) {
+                continue;
+            }
+            int headerEnd = section.indexOf('\n');
+            String[] header = section.substring(0, headerEnd).split(" ", 2);
+            String text = section.substring(headerEnd + 1);
+            texts.put(header[1], header[0].equals("srt") ? joinText(text) : text);
+        }
+        return texts;
+    }
+
+    private static String joinText(String srt) {
+        return new SrtSubtitles(srt).stream()
+                .map(entry -> String.join(" ", entry.text()))
+                .filter(text -> !text.isBlank())
+                .collect(Collectors.joining(" "));
+    }
+
+    private static Set<Long> bounds(Span[] spans) {
+        return Arrays.stream(spans)
+                .map(span -> (long) span.getStart() << 32 | span.getEnd())
+                .collect(Collectors.toSet());
+    }
+
+    private static Set<Long> ends(Span[] spans) {
+        return Arrays.stream(spans)
+                .map(span -> (long) span.getEnd())
+                .collect(Collectors.toSet());
+    }
+
+    private static int intersection(Set<Long> first, Set<Long> second) {
+        Set<Long> intersection = new HashSet<>(first);
+        intersection.retainAll(second);
+        return intersection.size();
+    }
+
+    private static String percent(int part, int total) {
+        return total == 0 ? "-" : String.format("%.1f%%", 100.0 * part / total);
+    }
+}
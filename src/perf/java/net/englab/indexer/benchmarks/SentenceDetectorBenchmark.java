@@ -0,0 +1,43 @@
+package net.englab.indexer.benchmarks;
+
+import net.englab.indexer.configs.IndexerProperties.Detector;
+import net.englab.indexer.subtitles.OpenNlpSentenceDetector;
+import net.englab.indexer.subtitles.RuleBasedSentenceDetector;
+import net.englab.indexer.subtitles.SentenceDetector;
+import net.englab.indexer.subtitles.SrtSubtitles;
+import opennlp.tools.util.Span;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.stream.Collectors;
+
+/**
+ * Measures how fast sentences are detected in the text of a whole transcript by every detector.
+ */
+@State(Scope.Thread)
+public class SentenceDetectorBenchmark {
+
+    @Param
+    private SrtLength length;
+
+    @Param
+    private Detector detector;
+
+    private SentenceDetector sentenceDetector;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        sentenceDetector = switch (detector) {
+            case OPENNLP -> new OpenNlpSentenceDetector();
+            case RULE_BASED -> new RuleBasedSentenceDetector();
+        };
+        text = new SrtSubtitles(SrtFixtures.generate(length, 42)).stream()
+                .map(entry -> String.join(" ", entry.text()))
+                .collect(Collectors.joining(" "));
+    }
+
+    @Benchmark
+    public Span[] detect() {
+        return sentenceDetector.detect(text);
+    }
+}
@@ -0,0 +1,92 @@
+package net.englab.indexer.benchmarks;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates synthetic SRT subtitles that look like real video transcripts.
+ * Every entry lasts for a couple of seconds and has one or two lines, sentences
+ * span several entries, and some entries contain sound descriptions and music.
+ * The generator is seeded, so the same fixture is produced on every run.
+ */
+public final class SrtFixtures {
+    private static final String[] WORDS = (
+            "the of and to a in is it you that he was for on are with as I his they be at one have this from "
+            + "or had by hot word but what some we can out other were all there when up use your how said an "
+            + "each she which do their time if will way about many then them write would like so these her long "
+            + "make thing see him two has look more day could go come did number sound no most people my over "
+            + "know water than call first who may down side been now find any new work part take get place made "
+            + "live where after back little only round man year came show every good me give our under name very "
+            + "through just form sentence great think say help low line differ turn cause much mean before move "
+            + "right boy old too same tell does set three want air well also play small end put home read hand"
+    ).split(" ");
+    private static final String[] SOUND_DESCRIPTIONS = {
+            "[music]", "[laughter]", "(applause)", "♪ upbeat music ♪", "*Outro Music*", "[indistinct chatter]"
+    };
+    private static final String[] PUNCTUATION = {".", ".", ".", "?", "!", ","};
+
+    private SrtFixtures() {
+    }
+
+    /**
+     * Generates subtitles of the given length.
+     *
+     * @param length    the length of the video
+     * @param seed      the seed of the random generator
+     * @return subtitles in the SRT format
+     */
+    public static String generate(SrtLength length, long seed) {
+        return generate(length.entries(), seed);
+    }
+
+    /**
+     * Generates subtitles with the given number of entries.
+     *
+     * @param entries   the number of SRT entries
+     * @param seed      the seed of the random generator
+     * @return subtitles in the SRT format
+     */
+    public static String generate(int entries, long seed) {
+        Random random = new Random(seed);
+        StringBuilder srt = new StringBuilder(entries * 96);
+        long time = 0;
+        for (int id = 1; id <= entries; id++) {
+            long duration = 1500 + random.nextInt(3000);
+            srt.append(id).append('\n')
+                    .append(timestamp(time)).append(" --> ").append(timestamp(time + duration)).append('\n');
+            int lines = random.nextInt(4) == 0 ? 1 : 2;
+            for (int line = 0; line < lines; line++) {
+                appendLine(srt, random);
+                srt.append('\n');
+            }
+            srt.append('\n');
+            time += duration + random.nextInt(300);
+        }
+        return srt.toString();
+    }
+
+    private static void appendLine(StringBuilder srt, Random random) {
+        if (random.nextInt(40) == 0) {
+            srt.append(SOUND_DESCRIPTIONS[random.nextInt(SOUND_DESCRIPTIONS.length)]);
+            return;
+        }
+        int words = 3 + random.nextInt(6);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) srt.append(' ');
+            String word = WORDS[random.nextInt(WORDS.length)];
+            if (i == 0 && random.nextInt(3) == 0) {
+                srt.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+            } else {
+                srt.append(word);
+            }
+        }
+        if (random.nextInt(3) == 0) {
+            srt.append(PUNCTUATION[random.nextInt(PUNCTUATION.length)]);
+        }
+    }
+
+    private static String timestamp(long millis) {
+        return String.format(Locale.ROOT, "%02d:%02d:%02d,%03d",
+                millis / 3_600_000, millis / 60_000 % 60, millis / 1000 % 60, millis % 1000);
+    }
+}
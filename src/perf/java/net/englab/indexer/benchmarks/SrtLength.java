@@ -0,0 +1,32 @@
+package net.englab.indexer.benchmarks;
+
+/**
+ * The typical lengths of videos. An SRT entry lasts for about three seconds on average.
+ */
+public enum SrtLength {
+    /**
+     * A five-minute clip.
+     */
+    SHORT(100),
+    /**
+     * A half-hour talk.
+     */
+    MEDIUM(600),
+    /**
+     * A multi-hour stream or podcast.
+     */
+    LONG(4800);
+
+    private final int entries;
+
+    SrtLength(int entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Returns the number of SRT entries in a video of this length.
+     */
+    public int entries() {
+        return entries;
+    }
+}
@@ -0,0 +1,26 @@
+package net.englab.indexer.benchmarks;
+
+import net.englab.indexer.subtitles.SrtSubtitles;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures how fast SRT subtitles are parsed.
+ */
+@State(Scope.Benchmark)
+public class SrtSubtitlesBenchmark {
+
+    @Param
+    private SrtLength length;
+
+    private String srt;
+
+    @Setup
+    public void setUp() {
+        srt = SrtFixtures.generate(length, 42);
+    }
+
+    @Benchmark
+    public SrtSubtitles parse() {
+        return new SrtSubtitles(srt);
+    }
+}
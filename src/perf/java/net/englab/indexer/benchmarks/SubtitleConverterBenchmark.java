@@ -0,0 +1,74 @@
+package net.englab.indexer.benchmarks;
+
+import net.englab.common.search.models.subtitles.SubtitleEntry;
+import net.englab.indexer.models.entities.EncodedSubtitleConverter;
+import net.englab.indexer.models.entities.SubtitleConverter;
+import net.englab.indexer.subtitles.SrtSubtitles;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+
+/**
+ * Measures how fast the subtitles of an indexed video are converted to JSON and back,
+ * and to the binary form and back. The binary form is decoded lazily, so the entries
+ * are read after decoding to make the comparison fair.
+ */
+@State(Scope.Benchmark)
+public class SubtitleConverterBenchmark {
+
+    @Param
+    private SrtLength length;
+
+    private SubtitleConverter converter;
+    private EncodedSubtitleConverter encodedConverter;
+    private List<SubtitleEntry> subtitles;
+    private String json;
+    private byte[] data;
+
+    @Setup
+    public void setUp() {
+        converter = new SubtitleConverter();
+        subtitles = new SrtSubtitles(SrtFixtures.generate(length, 42)).stream()
+                .map(entry -> new SubtitleEntry(
+                        entry.timeFrame().startTime(),
+                        entry.timeFrame().endTime(),
+                        List.of(String.join(" ", entry.text()))
+                )).toList();
+        json = converter.convertToDatabaseColumn(subtitles);
+        encodedConverter = new EncodedSubtitleConverter();
+        data = encodedConverter.convertToDatabaseColumn(subtitles);
+    }
+
+    @Benchmark
+    public String serialize() {
+        return converter.convertToDatabaseColumn(subtitles);
+    }
+
+    @Benchmark
+    public List<SubtitleEntry> deserialize() {
+        return converter.convertToEntityAttribute(json);
+    }
+
+    @Benchmark
+    public List<SubtitleEntry> roundTrip() {
+        return converter.convertToEntityAttribute(converter.convertToDatabaseColumn(subtitles));
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return encodedConverter.convertToDatabaseColumn(subtitles);
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        for (SubtitleEntry entry : encodedConverter.convertToEntityAttribute(data)) {
+            blackhole.consume(entry);
+        }
+    }
+
+    @Benchmark
+    public int decodeSize() {
+        return encodedConverter.convertToEntityAttribute(data).size();
+    }
+}
@@ -0,0 +1,62 @@
+package net.englab.indexer.benchmarks;
+
+import net.englab.common.search.models.subtitles.SubtitleSentence;
+import net.englab.indexer.subtitles.ExtractedSentence;
+import net.englab.indexer.subtitles.OpenNlpSentenceDetector;
+import net.englab.indexer.subtitles.SrtSubtitles;
+import net.englab.indexer.subtitles.SubtitleSentenceExtractor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Measures how fast sentences are extracted from parsed subtitles.
+ */
+@State(Scope.Thread)
+public class SubtitleSentenceExtractorBenchmark {
+
+    @Param
+    private SrtLength length;
+
+    private ExecutorService chunkExecutor;
+    private SubtitleSentenceExtractor extractor;
+    private SubtitleSentenceExtractor singlePassExtractor;
+    private SrtSubtitles srtSubtitles;
+
+    @Setup
+    public void setUp() {
+        chunkExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        extractor = new SubtitleSentenceExtractor(new OpenNlpSentenceDetector(),
+                SubtitleSentenceExtractor.DEFAULT_CHUNK_SIZE, SubtitleSentenceExtractor.DEFAULT_CHUNK_OVERLAP,
+                chunkExecutor);
+        singlePassExtractor = new SubtitleSentenceExtractor(new OpenNlpSentenceDetector(), Integer.MAX_VALUE, 0);
+        srtSubtitles = new SrtSubtitles(SrtFixtures.generate(length, 42));
+    }
+
+    @TearDown
+    public void tearDown() {
+        chunkExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public List<SubtitleSentence> extract() {
+        return extractor.extract(srtSubtitles);
+    }
+
+    @Benchmark
+    public List<ExtractedSentence> extractSentences() {
+        return extractor.extractSentences(srtSubtitles);
+    }
+
+    @Benchmark
+    public List<ExtractedSentence> extractSentencesWithoutSoundDescriptions() {
+        return extractor.extractSentences(srtSubtitles, true);
+    }
+
+    @Benchmark
+    public List<ExtractedSentence> extractSentencesSinglePass() {
+        return singlePassExtractor.extractSentences(srtSubtitles);
+    }
+}
@@ -0,0 +1,56 @@
+package net.englab.indexer.benchmarks;
+
+import net.englab.common.search.models.subtitles.SubtitleSentence;
+import net.englab.indexer.subtitles.SrtSubtitles;
+import net.englab.indexer.subtitles.SubtitleSentenceExtractor;
+import net.englab.indexer.text.TextTransformations;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures how fast sound descriptions are removed from all the sentences of a transcript.
+ * The regular expression that was used before the hand-written scanner is kept as a baseline.
+ */
+@State(Scope.Benchmark)
+public class TextTransformationsBenchmark {
+    private static final Pattern SOUND_DESCRIPTION_PATTERN =
+            Pattern.compile("\\[.*?]|\\(.*?\\)|♫.*?♫|♪.*?♪|\\*.*?\\*");
+
+    @Param
+    private SrtLength length;
+
+    private List<String> sentences;
+
+    @Setup
+    public void setUp() {
+        SrtSubtitles srtSubtitles = new SrtSubtitles(SrtFixtures.generate(length, 42));
+        sentences = new SubtitleSentenceExtractor().extract(srtSubtitles).stream()
+                .map(SubtitleSentence::text)
+                .toList();
+    }
+
+    @Benchmark
+    public void removeSoundDescriptions(Blackhole blackhole) {
+        for (String sentence : sentences) {
+            blackhole.consume(TextTransformations.removeSoundDescriptions(sentence));
+        }
+    }
+
+    @Benchmark
+    public void removeSoundDescriptionsRegex(Blackhole blackhole) {
+        for (String sentence : sentences) {
+            Matcher matcher = SOUND_DESCRIPTION_PATTERN.matcher(sentence);
+            StringBuilder result = new StringBuilder(sentence);
+            while (matcher.find()) {
+                for (int i = matcher.start(); i < matcher.end(); i++) {
+                    result.setCharAt(i, '_');
+                }
+            }
+            blackhole.consume(result.toString());
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package net.englab.indexer.harness;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lightweight in-process stand-in for Elasticsearch. It implements only the endpoints
+ * the indexer uses during full reindexing: index creation, deletion and settings,
+ * mappings, aliases, cluster health, refresh, force merge and bulk requests.
+ * <p>
+ * Documents are not stored, only counted, so the stand-in costs next to nothing
+ * and the measurements show the cost of the indexer itself. Every request can be
+ * delayed to simulate a remote cluster, and bulk requests can be rejected with 429
+ * as a whole or item by item to simulate a cluster that cannot keep up.
+ * Any other endpoint is answered with an error, so unexpected requests are noticed.
+ */
+@Slf4j
+public class ElasticStandIn implements AutoCloseable {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Settings settings;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, StandInIndex> indices = new ConcurrentHashMap<>();
+
+    private final LongAdder bulkRequests = new LongAdder();
+    private final LongAdder rejectedRequests = new LongAdder();
+    private final LongAdder acceptedDocs = new LongAdder();
+    private final LongAdder rejectedDocs = new LongAdder();
+    private final LongAdder receivedBytes = new LongAdder();
+
+    /**
+     * The behaviour of the stand-in.
+     *
+     * @param latency           the minimum time every request takes
+     * @param jitter            the maximum random time added to the latency
+     * @param requestRejectRate the share of bulk requests that are rejected as a whole
+     * @param itemRejectRate    the share of documents that are rejected in accepted bulk requests
+     */
+    public record Settings(Duration latency, Duration jitter, double requestRejectRate, double itemRejectRate) {
+    }
+
+    /**
+     * The number of bulk requests and documents the stand-in has received.
+     */
+    public record Stats(long bulkRequests, long rejectedRequests, long acceptedDocs, long rejectedDocs,
+                        long receivedBytes) {
+
+        /**
+         * Returns the difference between these counters and the earlier ones.
+         */
+        public Stats minus(Stats earlier) {
+            return new Stats(bulkRequests - earlier.bulkRequests, rejectedRequests - earlier.rejectedRequests,
+                    acceptedDocs - earlier.acceptedDocs, rejectedDocs - earlier.rejectedDocs,
+                    receivedBytes - earlier.receivedBytes);
+        }
+    }
+
+    /**
+     * Starts the stand-in on a random free port.
+     *
+     * @param settings the behaviour of the stand-in
+     */
+    public ElasticStandIn(Settings settings) throws IOException {
+        this.settings = settings;
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Returns the URL the stand-in is listening to.
+     */
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the statistics of the requests received so far.
+     */
+    public Stats stats() {
+        return new Stats(bulkRequests.sum(), rejectedRequests.sum(), acceptedDocs.sum(), rejectedDocs.sum(),
+                receivedBytes.sum());
+    }
+
+    /**
+     * Finds the index with the given name or the index the given alias points to.
+     *
+     * @param name the name of an index or an alias
+     * @return an Optional containing the name of the found index
+     */
+    public Optional<String> resolve(String name) {
+        return Optional.ofNullable(find(name)).map(StandInIndex::name);
+    }
+
+    /**
+     * Returns the number of documents accepted into the given index.
+     *
+     * @param name the name of an index or an alias
+     */
+    public long countDocs(String name) {
+        StandInIndex index = find(name);
+        return index == null ? 0 : index.docs().sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            delay();
+            String method = exchange.getRequestMethod();
+            String[] path = Arrays.stream(exchange.getRequestURI().getPath().split("/"))
+                    .filter(segment -> !segment.isEmpty())
+                    .toArray(String[]::new);
+            if (path.length == 0) {
+                error(exchange, 404, "illegal_argument_exception", "Unsupported request: " + method + " /");
+            } else if (path[0].equals("_bulk")) {
+                bulk(exchange, null);
+            } else if (path[0].equals("_cluster") && path.length == 3 && path[1].equals("health")) {
+                health(exchange, path[2]);
+            } else if (path.length == 1) {
+                switch (method) {
+                    case "HEAD" -> sendHeaders(exchange, find(path[0]) != null ? 200 : 404);
+                    case "PUT" -> createIndex(exchange, path[0]);
+                    case "GET" -> getIndex(exchange, path[0]);
+                    case "DELETE" -> deleteIndex(exchange, path[0]);
+                    default -> unsupported(exchange);
+                }
+            } else {
+                String index = path[0];
+                switch (path[1]) {
+                    case "_bulk" -> bulk(exchange, index);
+                    case "_refresh", "_forcemerge" -> ifExists(exchange, index, i -> shards());
+                    case "_settings" -> ifExists(exchange, index, i -> acknowledged());
+                    case "_mapping" -> mapping(exchange, index);
+                    case "_alias" -> ifExists(exchange, index, i -> {
+                        i.aliases().add(path[2]);
+                        return acknowledged();
+                    });
+                    default -> unsupported(exchange);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("The stand-in has failed to handle a request", e);
+            throw e;
+        }
+    }
+
+    private void delay() {
+        long latency = settings.latency().toMillis();
+        long jitter = settings.jitter().toMillis();
+        if (jitter > 0) {
+            latency += ThreadLocalRandom.current().nextLong(jitter + 1);
+        }
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void createIndex(HttpExchange exchange, String name) throws IOException {
+        exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+        if (find(name) != null) {
+            error(exchange, 400, "resource_already_exists_exception", "index [" + name + "] already exists");
+            return;
+        }
+        indices.put(name, new StandInIndex(name));
+        ObjectNode response = acknowledged();
+        response.put("shards_acknowledged", true);
+        response.put("index", name);
+        send(exchange, 200, response);
+    }
+
+    private void getIndex(HttpExchange exchange, String name) throws IOException {
+        ifExists(exchange, name, index -> {
+            ObjectNode response = objectMapper.createObjectNode();
+            ObjectNode state = response.putObject(index.name());
+            ObjectNode aliases = state.putObject("aliases");
+            index.aliases().forEach(aliases::putObject);
+            state.putObject("mappings");
+            state.putObject("settings");
+            return response;
+        });
+    }
+
+    private void deleteIndex(HttpExchange exchange, String name) throws IOException {
+        StandInIndex index = find(name);
+        if (index != null) {
+            indices.remove(index.name());
+        }
+        send(exchange, 200, acknowledged());
+    }
+
+    private void mapping(HttpExchange exchange, String name) throws IOException {
+        if (exchange.getRequestMethod().equals("PUT")) {
+            JsonNode body = objectMapper.readTree(exchange.getRequestBody());
+            ifExists(exchange, name, index -> {
+                if (body.has("_meta")) {
+                    index.meta = body.get("_meta");
+                }
+                return acknowledged();
+            });
+            return;
+        }
+        ifExists(exchange, name, index -> {
+            ObjectNode response = objectMapper.createObjectNode();
+            ObjectNode mappings = response.putObject(index.name()).putObject("mappings");
+            if (index.meta != null) {
+                mappings.set("_meta", index.meta);
+            }
+            mappings.putObject("properties");
+            return response;
+        });
+    }
+
+    private void health(HttpExchange exchange, String name) throws IOException {
+        ifExists(exchange, name, index -> {
+            ObjectNode response = objectMapper.createObjectNode();
+            response.put("cluster_name", "stand-in");
+            response.put("status", "green");
+            response.put("timed_out", false);
+            response.put("number_of_nodes", 1);
+            response.put("number_of_data_nodes", 1);
+            response.put("active_primary_shards", 1);
+            response.put("active_shards", 1);
+            response.put("relocating_shards", 0);
+            response.put("initializing_shards", 0);
+            response.put("unassigned_shards", 0);
+            response.put("delayed_unassigned_shards", 0);
+            response.put("number_of_pending_tasks", 0);
+            response.put("number_of_in_flight_fetch", 0);
+            response.put("task_max_waiting_in_queue_millis", 0);
+            response.put("active_shards_percent_as_number", 100.0);
+            return response;
+        });
+    }
+
+    private void bulk(HttpExchange exchange, String defaultIndex) throws IOException {
+        bulkRequests.increment();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < settings.requestRejectRate()) {
+            exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+            rejectedRequests.increment();
+            error(exchange, 429, "es_rejected_execution_exception", "rejected execution of the bulk request");
+            return;
+        }
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode items = objectMapper.createArrayNode();
+        boolean errors = false;
+        long bytes = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                bytes += line.length() + 1;
+                JsonNode action = objectMapper.readTree(line);
+                String operation = action.fieldNames().next();
+                JsonNode metadata = action.get(operation);
+                if (!operation.equals("delete")) {
+                    String source = reader.readLine();
+                    bytes += source == null ? 0 : source.length() + 1;
+                }
+                String indexName = metadata.has("_index") ? metadata.get("_index").asText() : defaultIndex;
+                StandInIndex index = find(indexName);
+
+                ObjectNode item = items.addObject().putObject(operation);
+                item.put("_index", index != null ? index.name() : indexName);
+                if (metadata.has("_id")) {
+                    item.set("_id", metadata.get("_id"));
+                }
+                if (index == null) {
+                    errors = true;
+                    item.put("status", 404);
+                    item.set("error", errorCause("index_not_found_exception", "no such index [" + indexName + "]"));
+                } else if (random.nextDouble() < settings.itemRejectRate()) {
+                    errors = true;
+                    rejectedDocs.increment();
+                    item.put("status", 429);
+                    item.set("error", errorCause("es_rejected_execution_exception", "rejected execution of the item"));
+                } else {
+                    acceptedDocs.increment();
+                    index.docs().increment();
+                    item.put("status", operation.equals("delete") ? 200 : 201);
+                }
+            }
+        }
+        receivedBytes.add(bytes);
+        response.put("took", 0);
+        response.put("errors", errors);
+        response.set("items", items);
+        send(exchange, 200, response);
+    }
+
+    private void ifExists(HttpExchange exchange, String name, IndexHandler handler) throws IOException {
+        StandInIndex index = find(name);
+        if (index == null) {
+            error(exchange, 404, "index_not_found_exception", "no such index [" + name + "]");
+            return;
+        }
+        send(exchange, 200, handler.handle(index));
+    }
+
+    private StandInIndex find(String name) {
+        StandInIndex index = indices.get(name);
+        if (index != null) {
+            return index;
+        }
+        return indices.values().stream()
+                .filter(i -> i.aliases().contains(name))
+                .findAny()
+                .orElse(null);
+    }
+
+    private ObjectNode acknowledged() {
+        return objectMapper.createObjectNode().put("acknowledged", true);
+    }
+
+    private ObjectNode shards() {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.putObject("_shards")
+                .put("total", 1)
+                .put("successful", 1)
+                .put("failed", 0);
+        return response;
+    }
+
+    private ObjectNode errorCause(String type, String reason) {
+        return objectMapper.createObjectNode()
+                .put("type", type)
+                .put("reason", reason);
+    }
+
+    private void unsupported(HttpExchange exchange) throws IOException {
+        String request = exchange.getRequestMethod() + " " + exchange.getRequestURI();
+        log.error("The stand-in does not support the request: {}", request);
+        error(exchange, 400, "illegal_argument_exception", "Unsupported request: " + request);
+    }
+
+    private void error(HttpExchange exchange, int status, String type, String reason) throws IOException {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.set("error", errorCause(type, reason));
+        response.put("status", status);
+        send(exchange, status, response);
+    }
+
+    private void send(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        // the client refuses to talk to a server that does not claim to be Elasticsearch
+        exchange.getResponseHeaders().add("X-Elastic-Product", "Elasticsearch");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private void sendHeaders(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().add("X-Elastic-Product", "Elasticsearch");
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    @FunctionalInterface
+    private interface IndexHandler {
+        JsonNode handle(StandInIndex index);
+    }
+
+    private static final class StandInIndex {
+        private final String name;
+        private final Set<String> aliases = ConcurrentHashMap.newKeySet();
+        private final LongAdder docs = new LongAdder();
+        private volatile JsonNode meta;
+
+        private StandInIndex(String name) {
+            this.name = name;
+        }
+
+        String name() {
+            return name;
+        }
+
+        Set<String> aliases() {
+            return aliases;
+        }
+
+        LongAdder docs() {
+            return docs;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package net.englab.indexer.harness;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * Samples the used heap in the background to find its high-water mark.
+ * The peak usages of the heap memory pools are also reset on start, so their sum
+ * gives an upper bound of the high-water mark that does not depend on the sampling interval.
+ */
+public class HeapSampler implements AutoCloseable {
+    private static final long SAMPLING_INTERVAL_MILLIS = 20;
+
+    private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+    private final long startGcCount;
+    private final long startGcMillis;
+    private final Thread thread;
+    private volatile long maxUsed;
+    private volatile boolean stopped;
+
+    /**
+     * The heap usage over the sampling period.
+     *
+     * @param maxSampledUsed    the maximum used heap that has been sampled, in bytes
+     * @param maxPoolsUsed      the sum of the peak usages of the heap memory pools, in bytes
+     * @param gcCount           the number of garbage collections
+     * @param gcMillis          the total time of garbage collections
+     */
+    public record Usage(long maxSampledUsed, long maxPoolsUsed, long gcCount, long gcMillis) {
+    }
+
+    /**
+     * Starts sampling the heap.
+     */
+    public HeapSampler() {
+        ManagementFactory.getMemoryPoolMXBeans().forEach(pool -> pool.resetPeakUsage());
+        startGcCount = gcCount();
+        startGcMillis = gcMillis();
+        maxUsed = memoryBean.getHeapMemoryUsage().getUsed();
+        thread = Thread.ofPlatform().daemon().name("heap-sampler").start(this::sample);
+    }
+
+    private void sample() {
+        while (!stopped) {
+            maxUsed = Math.max(maxUsed, memoryBean.getHeapMemoryUsage().getUsed());
+            try {
+                Thread.sleep(SAMPLING_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the heap usage since the sampling was started.
+     */
+    public Usage usage() {
+        long poolsUsed = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+        return new Usage(maxUsed, poolsUsed, gcCount() - startGcCount, gcMillis() - startGcMillis);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        stopped = true;
+        thread.interrupt();
+        thread.join();
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+                .sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+                .sum();
+    }
+}
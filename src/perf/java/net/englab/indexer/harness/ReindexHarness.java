@@ -0,0 +1,253 @@
+package net.englab.indexer.harness;
+
+import lombok.extern.slf4j.Slf4j;
+import net.englab.indexer.IndexerApplication;
+import net.englab.indexer.models.entities.IndexingJob;
+import net.englab.indexer.pipeline.StageStats;
+import net.englab.indexer.repository.IndexingJobRepository;
+import net.englab.indexer.services.IndexingProgress;
+import net.englab.indexer.services.VideoIndexer;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+import static net.englab.indexer.models.entities.IndexingJobStatus.COMPLETED;
+
+/**
+ * An end-to-end load harness for full reindexing. For every requested corpus size,
+ * it fills an embedded H2 database with synthetic videos, starts the indexer against it
+ * and an {@link ElasticStandIn}, runs {@link VideoIndexer#startIndexing()} and reports
+ * the throughput, the timings of the pipeline stages and the heap high-water mark.
+ * <p>
+ * The harness options are passed as {@code --harness.<name>=<value>}:
+ * <ul>
+ *     <li>{@code videos} - comma-separated corpus sizes, 1000 by default</li>
+ *     <li>{@code latency} - the minimum latency of every Elasticsearch request, 0 by default</li>
+ *     <li>{@code jitter} - the maximum random latency added to it, 0 by default</li>
+ *     <li>{@code reject-rate} - the share of bulk requests rejected with 429, 0 by default</li>
+ *     <li>{@code item-reject-rate} - the share of documents rejected with 429, 0 by default</li>
+ *     <li>{@code seed} - the seed of the synthetic corpus, 1 by default</li>
+ *     <li>{@code stall-timeout} - how long the job may make no progress before it's considered failed, 2m by default</li>
+ *     <li>{@code passes} - how many times every corpus is reindexed, 1 by default. The next passes
+ *     reuse the sentences cached by the first one, so they show how fast unchanged videos are reindexed</li>
+ * </ul>
+ * Any other argument is passed to the application, so the indexer properties can be tuned as usual:
+ * <pre>
+ * mvn -Pperf compile exec:exec@harness -Dharness.args="--harness.videos=1000,10000 --harness.latency=20ms
+ *     --harness.item-reject-rate=0.01 --indexer.bulk.max-in-flight=8"
+ * </pre>
+ * A run is considered finished when its job is marked as completed, which happens right after the alias swap.
+ */
+@Slf4j
+public final class ReindexHarness {
+    private static final String OPTION_PREFIX = "--harness.";
+    private static final Duration POLL_INTERVAL = Duration.ofSeconds(1);
+    private static final Duration REPORT_INTERVAL = Duration.ofSeconds(5);
+    // the time given to the job to clean up after the alias swap before the application is closed
+    private static final Duration SETTLE_TIME = Duration.ofSeconds(1);
+    private static final double MB = 1024 * 1024;
+
+    private ReindexHarness() {
+    }
+
+    private record Options(List<Integer> videos, ElasticStandIn.Settings elastic, long seed, Duration stallTimeout,
+                           int passes) {
+    }
+
+    private record Result(int videos, int pass, long srtEntries, Duration total, IndexingProgress.Snapshot progress,
+                          ElasticStandIn.Stats elastic, HeapSampler.Usage heap) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> harnessOptions = new HashMap<>();
+        Map<String, String> applicationArgs = new LinkedHashMap<>();
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            String value = option.length > 1 ? option[1] : "";
+            if (option[0].startsWith(OPTION_PREFIX)) {
+                harnessOptions.put(option[0].substring(OPTION_PREFIX.length()), value);
+            } else {
+                applicationArgs.put(option[0], value);
+            }
+        }
+        Options options = parseOptions(harnessOptions);
+
+        List<Result> results = new ArrayList<>();
+        for (int videos : options.videos()) {
+            results.addAll(run(videos, options, applicationArgs));
+        }
+        printSummary(results);
+        System.exit(0);
+    }
+
+    private static Options parseOptions(Map<String, String> options) {
+        List<Integer> videos = Arrays.stream(options.getOrDefault("videos", "1000").split(","))
+                .map(String::trim)
+                .map(Integer::parseInt)
+                .toList();
+        ElasticStandIn.Settings elastic = new ElasticStandIn.Settings(
+                DurationStyle.detectAndParse(options.getOrDefault("latency", "0ms")),
+                DurationStyle.detectAndParse(options.getOrDefault("jitter", "0ms")),
+                Double.parseDouble(options.getOrDefault("reject-rate", "0")),
+                Double.parseDouble(options.getOrDefault("item-reject-rate", "0"))
+        );
+        return new Options(
+                videos,
+                elastic,
+                Long.parseLong(options.getOrDefault("seed", "1")),
+                DurationStyle.detectAndParse(options.getOrDefault("stall-timeout", "2m")),
+                Integer.parseInt(options.getOrDefault("passes", "1"))
+        );
+    }
+
+    private static List<Result> run(int videos, Options options, Map<String, String> applicationArgs)
+            throws Exception {
+        Path databaseDir = Files.createTempDirectory("indexer-harness");
+        try (ElasticStandIn elastic = new ElasticStandIn(options.elastic());
+             ConfigurableApplicationContext context = startApplication(elastic, databaseDir, applicationArgs)) {
+            log.info("Generating {} synthetic videos...", videos);
+            long srtEntries = SyntheticCorpus.insert(context.getBean(JdbcTemplate.class), videos, options.seed());
+            log.info("{} videos with {} SRT entries have been generated.", videos, srtEntries);
+
+            VideoIndexer videoIndexer = context.getBean(VideoIndexer.class);
+            IndexingJobRepository jobRepository = context.getBean(IndexingJobRepository.class);
+            List<Result> results = new ArrayList<>();
+            for (int pass = 1; pass <= options.passes(); pass++) {
+                long lastJobId = lastCompletedJobId(jobRepository);
+                ElasticStandIn.Stats elasticBefore = elastic.stats();
+                System.gc();
+                try (HeapSampler heapSampler = new HeapSampler()) {
+                    long start = System.nanoTime();
+                    videoIndexer.startIndexing();
+                    awaitCompletion(videoIndexer, jobRepository, lastJobId, options.stallTimeout());
+                    Duration total = Duration.ofNanos(System.nanoTime() - start);
+                    IndexingProgress.Snapshot progress = videoIndexer.getIndexingProgress().orElseThrow();
+                    HeapSampler.Usage heap = heapSampler.usage();
+                    Thread.sleep(SETTLE_TIME);
+                    Result result = new Result(videos, pass, srtEntries, total, progress,
+                            elastic.stats().minus(elasticBefore), heap);
+                    printResult(result);
+                    results.add(result);
+                }
+            }
+            return results;
+        } finally {
+            FileSystemUtils.deleteRecursively(databaseDir);
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(ElasticStandIn elastic, Path databaseDir,
+                                                                   Map<String, String> applicationArgs) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("--spring.elasticsearch.uris", elastic.url());
+        properties.put("--spring.datasource.driver-class-name", "org.h2.Driver");
+        // the PostgreSQL specific settings of the data source are ignored by H2
+        properties.put("--spring.datasource.url", "jdbc:h2:file:" + databaseDir.resolve("indexer")
+                + ";MODE=PostgreSQL;IGNORE_UNKNOWN_SETTINGS=TRUE");
+        properties.put("--spring.datasource.username", "sa");
+        properties.put("--spring.datasource.password", "");
+        properties.put("--spring.liquibase.enabled", "false");
+        properties.put("--spring.sql.init.mode", "always");
+        properties.put("--spring.sql.init.schema-locations", "classpath:harness/schema.sql");
+        properties.putAll(applicationArgs);
+        String[] args = properties.entrySet().stream()
+                .map(property -> property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(IndexerApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args);
+    }
+
+    private static long lastCompletedJobId(IndexingJobRepository jobRepository) {
+        return jobRepository.findFirstByStatusOrderByIdDesc(COMPLETED).map(IndexingJob::getId).orElse(0L);
+    }
+
+    /**
+     * Waits until a job newer than the given one is completed. The job runs in the background, and its failures are only logged,
+     * so the job is considered failed if it has made no progress for too long.
+     */
+    private static void awaitCompletion(VideoIndexer videoIndexer, IndexingJobRepository jobRepository,
+                                        long lastJobId, Duration stallTimeout) throws InterruptedException {
+        long lastChange = System.nanoTime();
+        long lastReport = System.nanoTime();
+        List<Long> lastState = List.of();
+        while (lastCompletedJobId(jobRepository) <= lastJobId) {
+            Thread.sleep(POLL_INTERVAL);
+            long now = System.nanoTime();
+            Optional<IndexingProgress.Snapshot> progress = videoIndexer.getIndexingProgress();
+            List<Long> state = progress
+                    .map(p -> List.of(p.processedVideos(), p.acknowledgedDocs(), p.retriedDocs()))
+                    .orElse(List.of());
+            if (!state.equals(lastState)) {
+                lastState = state;
+                lastChange = now;
+            } else if (now - lastChange > stallTimeout.toNanos()) {
+                throw new IllegalStateException("The indexing job has made no progress for " + stallTimeout
+                        + ", see the log for the cause");
+            }
+            if (now - lastReport >= REPORT_INTERVAL.toNanos() && progress.isPresent()) {
+                IndexingProgress.Snapshot p = progress.get();
+                log.info("Progress: {}/{} videos, {} docs, {} docs/s", p.processedVideos(), p.totalVideos(),
+                        p.acknowledgedDocs(), Math.round(p.docsPerSecond()));
+                lastReport = now;
+            }
+        }
+    }
+
+    private static void printResult(Result result) {
+        IndexingProgress.Snapshot progress = result.progress();
+        ElasticStandIn.Stats elastic = result.elastic();
+        HeapSampler.Usage heap = result.heap();
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%n=== %d videos, %d SRT entries, pass %d ===%n",
+                result.videos(), result.srtEntries(), result.pass()));
+        report.append(String.format("Total time:       %.1f s (until the alias swap)%n", seconds(result.total())));
+        report.append(String.format("Pipeline time:    %.1f s%n", seconds(progress.elapsed())));
+        report.append(String.format("Indexed:          %d videos, %d sentences, %d docs%n",
+                progress.processedVideos(), progress.sentences(), progress.acknowledgedDocs()));
+        report.append(String.format("Throughput:       %.0f docs/s, %.1f videos/s (pipeline)%n",
+                progress.acknowledgedDocs() / seconds(progress.elapsed()),
+                progress.processedVideos() / seconds(progress.elapsed())));
+        report.append(String.format("Bulk requests:    %d, %d rejected, %d docs rejected, %.1f MB received%n",
+                elastic.bulkRequests(), elastic.rejectedRequests(), elastic.rejectedDocs(),
+                elastic.receivedBytes() / MB));
+        report.append(String.format("Retried docs:     %d%n", progress.retriedDocs()));
+        report.append(String.format("Heap high-water:  %.0f MB sampled, %.0f MB by pool peaks%n",
+                heap.maxSampledUsed() / MB, heap.maxPoolsUsed() / MB));
+        report.append(String.format("GC:               %d collections, %d ms%n", heap.gcCount(), heap.gcMillis()));
+        report.append(String.format("%-12s %8s %10s %10s %10s %10s%n",
+                "Stage", "Threads", "Items", "Busy, s", "Idle, s", "Blocked, s"));
+        for (StageStats.Snapshot stage : progress.stages()) {
+            report.append(String.format("%-12s %8d %10d %10.1f %10.1f %10.1f%n", stage.name(), stage.threads(),
+                    stage.items(), seconds(stage.busy()), seconds(stage.idle()), seconds(stage.blocked())));
+        }
+        System.out.print(report);
+    }
+
+    private static void printSummary(List<Result> results) {
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("%n=== Summary ===%n"));
+        summary.append(String.format("%10s %6s %12s %10s %12s %14s%n",
+                "Videos", "Pass", "Docs", "Total, s", "Docs/s", "Peak heap, MB"));
+        for (Result result : results) {
+            IndexingProgress.Snapshot progress = result.progress();
+            summary.append(String.format("%10d %6d %12d %10.1f %12.0f %14.0f%n", result.videos(), result.pass(),
+                    progress.acknowledgedDocs(), seconds(result.total()),
+                    progress.acknowledgedDocs() / seconds(result.total()), result.heap().maxSampledUsed() / MB));
+        }
+        System.out.print(summary);
+    }
+
+    private static double seconds(Duration duration) {
+        return duration.toNanos() / 1e9;
+    }
+}
@@ -0,0 +1,65 @@
+package net.englab.indexer.harness;
+
+import net.englab.common.search.models.common.EnglishVariety;
+import net.englab.indexer.benchmarks.SrtFixtures;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fills the video table with synthetic videos. The lengths of the videos follow
+ * a log-normal distribution like the lengths of real videos do: most of them
+ * last for a few minutes, while a long tail lasts for hours.
+ */
+public final class SyntheticCorpus {
+    // a median video lasts for about 10 minutes, and an SRT entry lasts for about 3 seconds
+    private static final double MEDIAN_ENTRIES = 200;
+    private static final double SIGMA = 1.0;
+    private static final int MIN_ENTRIES = 10;
+    // a 4-hour video
+    private static final int MAX_ENTRIES = 4800;
+    private static final int INSERT_BATCH_SIZE = 200;
+
+    private SyntheticCorpus() {
+    }
+
+    /**
+     * Inserts the given number of synthetic videos into the database.
+     *
+     * @param jdbcTemplate  the JDBC template of the database
+     * @param videos        the number of videos to be inserted
+     * @param seed          the seed of the random generator
+     * @return the total number of SRT entries of the inserted videos
+     */
+    public static long insert(JdbcTemplate jdbcTemplate, int videos, long seed) {
+        Random random = new Random(seed);
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        long totalEntries = 0;
+        for (int i = 0; i < videos; i++) {
+            int entries = entries(random);
+            totalEntries += entries;
+            EnglishVariety variety = random.nextBoolean() ? EnglishVariety.AMERICAN : EnglishVariety.BRITISH;
+            String srt = SrtFixtures.generate(entries, random.nextLong());
+            batch.add(new Object[]{String.format("v%010d", i), variety.name(), srt});
+            if (batch.size() == INSERT_BATCH_SIZE) {
+                insertBatch(jdbcTemplate, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            insertBatch(jdbcTemplate, batch);
+        }
+        return totalEntries;
+    }
+
+    private static int entries(Random random) {
+        double entries = MEDIAN_ENTRIES * Math.exp(SIGMA * random.nextGaussian());
+        return (int) Math.clamp(Math.round(entries), MIN_ENTRIES, MAX_ENTRIES);
+    }
+
+    private static void insertBatch(JdbcTemplate jdbcTemplate, List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("insert into video (youtube_video_id, variety, srt) values (?, ?, ?)", batch);
+    }
+}
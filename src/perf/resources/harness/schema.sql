@@ -0,0 +1,45 @@
+-- The schema of the Liquibase changelogs for the embedded H2 database of the load harness.
+-- The changelogs cannot be run as is because H2 does not create a sequence for a SERIAL column.
+
+CREATE TABLE IF NOT EXISTS video (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    youtube_video_id VARCHAR NOT NULL UNIQUE,
+    variety VARCHAR NOT NULL,
+    srt TEXT NOT NULL
+);
+
+CREATE SEQUENCE IF NOT EXISTS indexed_video_id_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS indexed_video (
+    id BIGINT NOT NULL PRIMARY KEY,
+    index_name VARCHAR NOT NULL,
+    youtube_video_id VARCHAR NOT NULL,
+    variety VARCHAR NOT NULL,
+    subtitles TEXT,
+    content_hash VARCHAR,
+    encoded_subtitles BYTEA
+);
+
+CREATE TABLE IF NOT EXISTS indexing_job (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    index_name VARCHAR NOT NULL,
+    status VARCHAR NOT NULL,
+    start_time TIMESTAMP WITH TIME ZONE NOT NULL,
+    last_video_id BIGINT NOT NULL,
+    indexed_videos BIGINT NOT NULL,
+    indexed_docs BIGINT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS video_change (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    type VARCHAR NOT NULL,
+    video_id BIGINT NOT NULL,
+    youtube_video_id VARCHAR,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS sentence_cache (
+    hash VARCHAR NOT NULL PRIMARY KEY,
+    data BYTEA NOT NULL,
+    used_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
@@ -0,0 +1,45 @@
+package net.englab.indexer.pipeline;
+
+import net.englab.indexer.pipeline.CompletionTracker.Progress;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompletionTrackerTest {
+
+    @Test
+    void test() {
+        CompletionTracker tracker = new CompletionTracker(new Progress(0, 0, 0));
+        tracker.register(3, 1);
+        tracker.register(5, 2);
+        tracker.register(8, 1);
+
+        tracker.complete(8);
+        assertEquals(new Progress(0, 0, 0), tracker.progress());
+
+        tracker.complete(3);
+        assertEquals(new Progress(3, 1, 0), tracker.progress());
+
+        tracker.addUnits(5, 10);
+        tracker.complete(5);
+        tracker.complete(5);
+        assertEquals(new Progress(3, 1, 0), tracker.progress());
+
+        for (int i = 0; i < 10; i++) {
+            tracker.complete(5);
+        }
+        assertEquals(new Progress(8, 3, 10), tracker.progress());
+    }
+
+    @Test
+    void testResume() {
+        CompletionTracker tracker = new CompletionTracker(new Progress(10, 4, 100));
+        assertThrows(IllegalArgumentException.class, () -> tracker.register(10, 1));
+
+        tracker.register(11, 1);
+        tracker.complete(11);
+
+        assertEquals(new Progress(11, 5, 100), tracker.progress());
+    }
+}
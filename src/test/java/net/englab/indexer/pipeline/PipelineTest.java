@@ -0,0 +1,93 @@
+package net.englab.indexer.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static net.englab.indexer.pipeline.ThreadType.PLATFORM;
+import static net.englab.indexer.pipeline.ThreadType.VIRTUAL;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineTest {
+
+    @Test
+    void test() {
+        Set<Integer> result = ConcurrentHashMap.newKeySet();
+
+        Pipeline.from(IntStream.range(0, 1000).boxed())
+                .<Integer>stage("square", 4, 2, PLATFORM, () -> (n, output) -> output.accept(n * n))
+                .<Integer>stage("split", 3, 8, VIRTUAL, () -> (n, output) -> {
+                    output.accept(n);
+                    output.accept(-n);
+                })
+                .stage("collect", 2, 1, VIRTUAL, () -> (n, output) -> result.add(n))
+                .run();
+
+        assertEquals(1999, result.size());
+        assertTrue(result.contains(999 * 999));
+        assertTrue(result.contains(-999 * 999));
+    }
+
+    @Test
+    void testFinish() {
+        Set<Integer> result = ConcurrentHashMap.newKeySet();
+
+        Pipeline.from(IntStream.range(0, 10).boxed())
+                .<Integer>stage("sum", 1, 4, PLATFORM, () -> new StageWorker<>() {
+                    private int sum;
+
+                    @Override
+                    public void process(Integer n, Consumer<Integer> output) {
+                        sum += n;
+                    }
+
+                    @Override
+                    public void finish(Consumer<Integer> output) {
+                        output.accept(sum);
+                    }
+                })
+                .stage("collect", 1, 4, VIRTUAL, () -> (n, output) -> result.add(n))
+                .run();
+
+        assertEquals(Set.of(45), result);
+    }
+
+    @Test
+    void testStats() {
+        Pipeline<Integer> pipeline = Pipeline.from(IntStream.range(0, 100).boxed())
+                .<Integer>stage("double", 2, 4, PLATFORM, () -> (n, output) -> {
+                    output.accept(n);
+                    output.accept(n);
+                })
+                .stage("sink", 1, 4, VIRTUAL, () -> (n, output) -> {});
+        pipeline.run();
+
+        List<StageStats.Snapshot> stats = pipeline.stats().stream()
+                .map(StageStats::snapshot)
+                .toList();
+        assertEquals(List.of("source", "double", "sink"), stats.stream().map(StageStats.Snapshot::name).toList());
+        assertEquals(List.of(100L, 100L, 200L), stats.stream().map(StageStats.Snapshot::items).toList());
+        assertEquals(2, stats.get(1).threads());
+    }
+
+    @Test
+    void testFailure() {
+        Pipeline<Integer> pipeline = Pipeline.from(Stream.iterate(0, n -> n + 1))
+                .<Integer>stage("fail", 2, 4, VIRTUAL, () -> (n, output) -> {
+                    if (n == 100) {
+                        throw new IllegalStateException("Failure");
+                    }
+                    output.accept(n);
+                })
+                .stage("sink", 2, 4, PLATFORM, () -> (n, output) -> {});
+
+        PipelineException exception = assertThrows(PipelineException.class, pipeline::run);
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+}
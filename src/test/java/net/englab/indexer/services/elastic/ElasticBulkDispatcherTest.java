@@ -0,0 +1,244 @@
+package net.englab.indexer.services.elastic;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import co.elastic.clients.transport.TransportOptions;
+import co.elastic.clients.util.BinaryData;
+import co.elastic.clients.util.ContentType;
+import co.elastic.clients.util.ObjectBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.englab.common.search.exceptions.ElasticOperationException;
+import net.englab.indexer.configs.IndexerProperties;
+import net.englab.indexer.metrics.IndexerMetrics;
+import net.englab.indexer.models.elastic.ElasticDocument;
+import net.englab.indexer.services.elastic.ElasticBulkDispatcher.BulkListener;
+import net.englab.indexer.services.elastic.ElasticBulkDispatcher.BulkSession;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ElasticBulkDispatcherTest {
+    private static final String INDEX_NAME = "videos";
+
+    @Test
+    void testPermitLimit() throws Exception {
+        BlockingQueue<CompletableFuture<BulkResponse>> pendingResponses = new LinkedBlockingQueue<>();
+        ElasticBulkDispatcher dispatcher = dispatcher(request -> {
+            CompletableFuture<BulkResponse> response = new CompletableFuture<>();
+            pendingResponses.add(response);
+            return response;
+        });
+        RecordingListener listener = new RecordingListener();
+
+        try (BulkSession session = dispatcher.open(INDEX_NAME, listener)) {
+            Thread producer = Thread.ofPlatform().start(() -> {
+                try {
+                    for (int i = 0; i < 3; i++) {
+                        session.add(doc("doc" + i), "doc" + i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            // every document is a batch, and only two batches can be in flight
+            CompletableFuture<BulkResponse> first = pendingResponses.poll(5, TimeUnit.SECONDS);
+            CompletableFuture<BulkResponse> second = pendingResponses.poll(5, TimeUnit.SECONDS);
+            assertNotNull(first);
+            assertNotNull(second);
+            awaitState(producer, Thread.State.WAITING);
+            assertNull(pendingResponses.poll(100, TimeUnit.MILLISECONDS));
+
+            first.complete(response(201));
+            CompletableFuture<BulkResponse> third = pendingResponses.poll(5, TimeUnit.SECONDS);
+            assertNotNull(third);
+            producer.join();
+
+            second.complete(response(201));
+            third.complete(response(201));
+            assertEquals(Map.of(), session.complete());
+        }
+        assertEquals(Set.of("doc0", "doc1", "doc2"), listener.completedSources());
+    }
+
+    @Test
+    void testLingerFlushDuringComplete() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        ElasticBulkDispatcher dispatcher = dispatcher(request -> {
+            BulkResponse response = response(201);
+            if (requests.incrementAndGet() == 1) {
+                // the first batch holds the only permit for a while
+                Executor delayedExecutor = CompletableFuture.delayedExecutor(300, TimeUnit.MILLISECONDS);
+                return CompletableFuture.supplyAsync(() -> response, delayedExecutor);
+            }
+            return CompletableFuture.completedFuture(response);
+        }, bulk(1, 100, Duration.ofMillis(20), retry(3, 100)));
+        RecordingListener listener = new RecordingListener();
+
+        Map<String, String> failedSources;
+        try (BulkSession session = dispatcher.open(INDEX_NAME, listener)) {
+            session.add(doc("first"), "first");
+            awaitRequests(requests, 1);
+            // the linger flush takes the second batch and waits for the permit
+            session.add(doc("second"), "second");
+            Thread.sleep(150);
+
+            failedSources = session.complete();
+        }
+        assertEquals(Map.of(), failedSources);
+        assertEquals(2, requests.get());
+        assertEquals(Set.of("first", "second"), listener.completedSources());
+    }
+
+    @Test
+    void testPartialRetries() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        AtomicInteger rejections = new AtomicInteger();
+        ElasticBulkDispatcher dispatcher = dispatcher(request -> {
+            requests.incrementAndGet();
+            int[] statuses = request.operations().stream()
+                    .mapToInt(operation -> switch (operation.index().id()) {
+                        case "rejected" -> rejections.incrementAndGet() <= 2 ? 429 : 201;
+                        case "broken" -> 400;
+                        default -> 201;
+                    })
+                    .toArray();
+            return CompletableFuture.completedFuture(response(statuses));
+        }, bulk(1, 3, Duration.ofHours(1), retry(5, 100)));
+        RecordingListener listener = new RecordingListener();
+
+        Map<String, String> failedSources;
+        try (BulkSession session = dispatcher.open(INDEX_NAME, listener)) {
+            session.add(doc("indexed"), "indexed");
+            session.add(doc("rejected"), "rejected");
+            session.add(doc("broken"), "broken");
+            failedSources = session.complete();
+        }
+
+        // only the rejected document is resent, and the broken one is reported
+        assertEquals(Map.of("broken", "error_400: status 400"), failedSources);
+        assertEquals(3, requests.get());
+        assertEquals(2, listener.retries.get());
+        assertEquals(Set.of("indexed", "rejected", "broken"), listener.completedSources());
+    }
+
+    @Test
+    void testRetryBudget() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        ElasticBulkDispatcher dispatcher = dispatcher(request -> {
+            requests.incrementAndGet();
+            return CompletableFuture.completedFuture(response(429));
+        }, bulk(1, 1, Duration.ofHours(1), retry(10, 2)));
+        RecordingListener listener = new RecordingListener();
+
+        try (BulkSession session = dispatcher.open(INDEX_NAME, listener)) {
+            session.add(doc("rejected"), "rejected");
+            assertThrows(ElasticOperationException.class, session::complete);
+        }
+        assertEquals(3, requests.get());
+        assertEquals(2, listener.retries.get());
+        assertEquals(Set.of(), listener.completedSources());
+    }
+
+    private static ElasticBulkDispatcher dispatcher(Function<BulkRequest, CompletableFuture<BulkResponse>> handler) {
+        return dispatcher(handler, bulk(2, 1, Duration.ofHours(1), retry(3, 100)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ElasticBulkDispatcher dispatcher(Function<BulkRequest, CompletableFuture<BulkResponse>> handler,
+                                                    IndexerProperties.Bulk bulk) {
+        ElasticsearchAsyncClient client = mock(ElasticsearchAsyncClient.class);
+        when(client.withTransportOptions(any(Function.class))).thenReturn(client);
+        when(client.withTransportOptions(any(TransportOptions.class))).thenReturn(client);
+        when(client.bulk(any(Function.class))).thenAnswer(invocation -> {
+            Function<BulkRequest.Builder, ObjectBuilder<BulkRequest>> fn = invocation.getArgument(0);
+            return handler.apply(fn.apply(new BulkRequest.Builder()).build());
+        });
+        IndexerProperties properties = new IndexerProperties(null, null, null, bulk, null, null, null, null);
+        return new ElasticBulkDispatcher(client, properties, new IndexerMetrics(new SimpleMeterRegistry()));
+    }
+
+    private static IndexerProperties.Bulk bulk(int maxInFlight, int maxDocs, Duration linger,
+                                               IndexerProperties.Retry retry) {
+        return new IndexerProperties.Bulk(maxInFlight, maxDocs, DataSize.ofMegabytes(10), linger, retry);
+    }
+
+    private static IndexerProperties.Retry retry(int maxRetries, long budget) {
+        return new IndexerProperties.Retry(maxRetries, Duration.ofMillis(1), Duration.ofMillis(1), budget);
+    }
+
+    private static ElasticDocument doc(String id) {
+        byte[] data = "{\"id\":\"%s\"}".formatted(id).getBytes(StandardCharsets.UTF_8);
+        return new ElasticDocument(id, BinaryData.of(data, ContentType.APPLICATION_JSON));
+    }
+
+    private static BulkResponse response(int... statuses) {
+        List<BulkResponseItem> items = new ArrayList<>();
+        boolean errors = false;
+        for (int status : statuses) {
+            boolean error = status >= 300;
+            errors |= error;
+            items.add(BulkResponseItem.of(b -> {
+                b.operationType(OperationType.Index).index(INDEX_NAME).status(status);
+                if (error) {
+                    b.error(e -> e.type("error_" + status).reason("status " + status));
+                }
+                return b;
+            }));
+        }
+        boolean hasErrors = errors;
+        return BulkResponse.of(b -> b.took(1).errors(hasErrors).items(items));
+    }
+
+    private static void awaitRequests(AtomicInteger requests, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (requests.get() < count) {
+            assertTrue(System.nanoTime() < deadline, "The request has not been sent");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void awaitState(Thread thread, Thread.State state) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != state) {
+            assertTrue(System.nanoTime() < deadline, "The thread has not reached the state " + state);
+            Thread.sleep(5);
+        }
+    }
+
+    private static class RecordingListener implements BulkListener {
+        private final Set<Object> completedSources = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger retries = new AtomicInteger();
+
+        @Override
+        public void onCompleted(List<Object> sources) {
+            completedSources.addAll(sources);
+        }
+
+        @Override
+        public void onRetry(int docs) {
+            retries.addAndGet(docs);
+        }
+
+        Set<Object> completedSources() {
+            return Set.copyOf(completedSources);
+        }
+    }
+}
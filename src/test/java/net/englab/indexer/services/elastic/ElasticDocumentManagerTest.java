@@ -0,0 +1,104 @@
+package net.englab.indexer.services.elastic;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.englab.indexer.metrics.IndexerMetrics;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the document manager against a local HTTP server that answers like an Elasticsearch cluster.
+ */
+class ElasticDocumentManagerTest {
+    private static final String INDEX_NAME = "videos";
+    private static final int PAGE_SIZE = 10_000;
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+    private RestClient restClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            String path = exchange.getRequestURI().getPath();
+            requests.add(exchange.getRequestMethod() + " " + path);
+            switch (path) {
+                case "/" + INDEX_NAME + "/_refresh" -> respond(exchange, "{\"_shards\":{\"total\":1,\"successful\":1,\"failed\":0}}");
+                case "/" + INDEX_NAME + "/_pit" -> respond(exchange, "{\"id\":\"pit-1\"}");
+                case "/_pit" -> respond(exchange, "{\"succeeded\":true,\"num_freed\":1}");
+                // the first page is full, so the second one is requested after its last hit
+                case "/_search" -> respond(exchange, body.contains("search_after") ? hits(PAGE_SIZE, 1) : hits(0, PAGE_SIZE));
+                default -> respond(exchange, "{}");
+            }
+        });
+        server.start();
+        restClient = RestClient.builder(new HttpHost("localhost", server.getAddress().getPort())).build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        restClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    void testFindIds() {
+        ElasticsearchClient client = new ElasticsearchClient(new RestClientTransport(restClient, new JacksonJsonpMapper()));
+        ElasticDocumentManager documentManager =
+                new ElasticDocumentManager(client, new IndexerMetrics(new SimpleMeterRegistry()));
+
+        Set<String> ids = documentManager.findIds(INDEX_NAME, "youtubeVideoId", "abc");
+
+        assertEquals(PAGE_SIZE + 1, ids.size());
+        assertTrue(ids.contains("doc-0"));
+        assertTrue(ids.contains("doc-" + PAGE_SIZE));
+        assertEquals(List.of(
+                "POST /" + INDEX_NAME + "/_refresh",
+                "POST /" + INDEX_NAME + "/_pit",
+                "POST /_search",
+                "POST /_search",
+                "DELETE /_pit"
+        ), requests);
+    }
+
+    private static String hits(int from, int count) {
+        StringBuilder hits = new StringBuilder();
+        for (int i = from; i < from + count; i++) {
+            if (!hits.isEmpty()) {
+                hits.append(',');
+            }
+            hits.append("{\"_index\":\"").append(INDEX_NAME).append("\",\"_id\":\"doc-").append(i)
+                    .append("\",\"_score\":null,\"sort\":[").append(i).append("]}");
+        }
+        return "{\"took\":1,\"timed_out\":false,\"pit_id\":\"pit-1\","
+                + "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+                + "\"hits\":{\"max_score\":null,\"hits\":[" + hits + "]}}";
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.getResponseHeaders().add("X-Elastic-Product", "Elasticsearch");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
@@ -0,0 +1,100 @@
+package net.englab.indexer.services.elastic;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.englab.common.search.exceptions.ElasticOperationException;
+import net.englab.indexer.configs.IndexerProperties;
+import net.englab.indexer.metrics.IndexerMetrics;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the index manager against a local HTTP server that answers like an Elasticsearch cluster,
+ * including the 408 responses of the cluster health API.
+ */
+class ElasticIndexManagerTest {
+    private static final String INDEX_NAME = "videos";
+
+    private final AtomicInteger healthRequests = new AtomicInteger();
+    private volatile int timedOutRequests;
+    private HttpServer server;
+    private RestClient restClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/_cluster/health/" + INDEX_NAME, exchange -> {
+            boolean timedOut = healthRequests.incrementAndGet() <= timedOutRequests;
+            respond(exchange, timedOut ? 408 : 200, health(timedOut ? "yellow" : "green", timedOut));
+        });
+        server.start();
+        restClient = RestClient.builder(new HttpHost("localhost", server.getAddress().getPort())).build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        restClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    void testWaitForGreenAfterTimeouts() {
+        timedOutRequests = 2;
+
+        indexManager(Duration.ofMinutes(1)).waitForGreen(INDEX_NAME);
+
+        assertEquals(3, healthRequests.get());
+    }
+
+    @Test
+    void testWaitForGreenTimeout() {
+        timedOutRequests = Integer.MAX_VALUE;
+
+        var exception = assertThrows(ElasticOperationException.class,
+                () -> indexManager(Duration.ZERO).waitForGreen(INDEX_NAME));
+
+        assertInstanceOf(TimeoutException.class, exception.getCause());
+        assertEquals(1, healthRequests.get());
+    }
+
+    private ElasticIndexManager indexManager(Duration greenTimeout) {
+        ElasticsearchClient client = new ElasticsearchClient(new RestClientTransport(restClient, new JacksonJsonpMapper()));
+        IndexerProperties.Index index = new IndexerProperties.Index("1s", 1, 1, greenTimeout, Duration.ofHours(1));
+        IndexerProperties properties = new IndexerProperties(null, null, null, null, index, null, null, null);
+        return new ElasticIndexManager(client, properties, new IndexerMetrics(new SimpleMeterRegistry()));
+    }
+
+    private static String health(String status, boolean timedOut) {
+        return """
+                {"cluster_name":"test","status":"%s","timed_out":%s,"number_of_nodes":1,"number_of_data_nodes":1,
+                "active_primary_shards":1,"active_shards":1,"relocating_shards":0,"initializing_shards":0,
+                "unassigned_shards":0,"delayed_unassigned_shards":0,"number_of_pending_tasks":0,
+                "number_of_in_flight_fetch":0,"task_max_waiting_in_queue_millis":0,"active_shards_percent_as_number":100.0}
+                """.formatted(status, timedOut);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.getResponseHeaders().add("X-Elastic-Product", "Elasticsearch");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
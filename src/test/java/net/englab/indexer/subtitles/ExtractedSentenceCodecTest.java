@@ -0,0 +1,44 @@
+package net.englab.indexer.subtitles;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ExtractedSentenceCodecTest {
+
+    @Test
+    void testRoundTrip() {
+        List<ExtractedSentence> sentences = List.of(
+                new ExtractedSentence("Hello world!", 0, new int[]{0, 12}, new int[]{0}),
+                new ExtractedSentence("Привет, мир — this is a test.", 13, new int[]{0, 15, 29}, new int[]{0, 1}),
+                new ExtractedSentence("", 300, new int[]{0}, new int[]{}),
+                new ExtractedSentence("Far away.", 100_000, new int[]{0, 9}, new int[]{70_000})
+        );
+
+        List<ExtractedSentence> decoded = ExtractedSentenceCodec.decode(ExtractedSentenceCodec.encode(sentences));
+
+        assertEquals(sentences.size(), decoded.size());
+        for (int i = 0; i < sentences.size(); i++) {
+            assertEquals(sentences.get(i).text(), decoded.get(i).text());
+            assertEquals(sentences.get(i).position(), decoded.get(i).position());
+            assertArrayEquals(sentences.get(i).boundaries(), decoded.get(i).boundaries());
+            assertArrayEquals(sentences.get(i).entries(), decoded.get(i).entries());
+        }
+    }
+
+    @Test
+    void testEmpty() {
+        assertEquals(List.of(), ExtractedSentenceCodec.decode(ExtractedSentenceCodec.encode(List.of())));
+    }
+
+    @Test
+    void testCorruptedData() {
+        byte[] data = ExtractedSentenceCodec.encode(List.of());
+        data[data.length - 1] ^= 1;
+        assertThrows(RuntimeException.class, () -> ExtractedSentenceCodec.decode(data));
+    }
+}
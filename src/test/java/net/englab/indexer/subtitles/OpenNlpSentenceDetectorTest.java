@@ -1,12 +1,20 @@
 package net.englab.indexer.subtitles;
 
+import opennlp.tools.util.Span;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
-class SentenceDetectorTest {
+class OpenNlpSentenceDetectorTest {
 
-    private final SentenceDetector sentenceDetector = new SentenceDetector();
+    private final SentenceDetector sentenceDetector = new OpenNlpSentenceDetector();
 
     @Test
     void test() {
@@ -103,4 +111,21 @@ class SentenceDetectorTest {
 
         assertEquals(4, spans.length);
     }
+
+    @Test
+    void testConcurrentDetection() throws Exception {
+        SentenceDetector pooledDetector = new OpenNlpSentenceDetector(OpenNlpSentenceDetector.loadModel(), 2);
+        String text = "Oooh! Hello! ...is that really you? Yes. First sentence. Second sentence.";
+        Span[] expected = sentenceDetector.detect(text);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<Span[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(executor.submit(() -> pooledDetector.detect(text)));
+            }
+            for (Future<Span[]> future : futures) {
+                assertArrayEquals(expected, future.get());
+            }
+        }
+    }
 }
@@ -0,0 +1,139 @@
+package net.englab.indexer.subtitles;
+
+import opennlp.tools.util.Span;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RuleBasedSentenceDetectorTest {
+
+    private final SentenceDetector sentenceDetector = new RuleBasedSentenceDetector();
+
+    @Test
+    void test() {
+        String text = "  First sentence. Second sentence. ";
+
+        var spans = sentenceDetector.detect(text);
+
+        assertEquals(2, spans.length);
+    }
+
+    @Test
+    void testEllipsis() {
+        String text = "Oooh! Hello! ...is that really you? Yes.";
+
+        var spans = sentenceDetector.detect(text);
+
+        assertEquals(4, spans.length);
+    }
+
+    @Test
+    void testEllipsis2() {
+        String text = """
+                    The ... fox jumps...
+                    The quick brown fox jumps over the lazy dog. And if they have not died, they are still alive today.
+                    It is not cold ... it is freezing cold.
+                """;
+
+        var spans = sentenceDetector.detect(text);
+
+        assertEquals(4, spans.length);
+    }
+
+    @Test
+    void testWebsite() {
+        String text = """
+                They actually helped make that Earth bridge animation for me.
+                So be sure to check out GoogleScienceFair.com.
+                And I'll keep checking out Los Angeles.
+                """;
+
+        var spans = sentenceDetector.detect(text);
+
+        assertEquals(3, spans.length);
+    }
+
+    @Test
+    void testInitials() {
+        String text = """
+                The famous fictional world of Snaiad is the creation of the one and only C. M. Kosemen,
+                author of All Tomorrows and expert in all things alien, who you can follow and support
+                in the links below. This online worldbuilding project includes more than 200 extraterrestrial
+                lifeforms from several dozen lineages — and an awe-inspiring amount of detail about each one.
+                """;
+
+        var spans = sentenceDetector.detect(text);
+
+        assertEquals(2, spans.length);
+    }
+
+    @Test
+    void testAbbreviation() {
+        String text = """
+                And another form of negativity, complaining.
+                Well, this is the national art of the U.K. which is very good.
+                """;
+
+        var spans = sentenceDetector.detect(text);
+
+        assertEquals(2, spans.length);
+    }
+
+    @Test
+    void testAbbreviation2() {
+        String text = """
+                And in September of last year, the completed telescope was shipped from its testing facility
+                in California, to the Guianan Space Centre, in French Guiana, a.k.a. Europe’s Spaceport.
+                """;
+
+        var spans = sentenceDetector.detect(text);
+
+        assertEquals(1, spans.length);
+    }
+
+    @Test
+    void testMrs() {
+        String text = """
+                Alex, what's going on? Good morning, Mr. Campbell. Faisal Jenson.
+                Apparently I must thank you for rescuing Alex.
+                """;
+
+        var spans = sentenceDetector.detect(text);
+
+        assertEquals(4, spans.length);
+    }
+
+    @Test
+    void testSpans() {
+        String text = "  Oooh! Hello! ...is that really you? Yes";
+
+        var spans = sentenceDetector.detect(text);
+
+        assertArrayEquals(new Span[]{new Span(2, 7), new Span(8, 14), new Span(15, 37), new Span(38, 41)}, spans);
+    }
+
+    @Test
+    void testSpeakerDashes() {
+        String text = "- Where are you going? - home. - Mr. Smith said no... - ...and he was right.";
+
+        var spans = sentenceDetector.detect(text);
+
+        assertEquals(4, spans.length);
+    }
+
+    @Test
+    void testNumbersAndLinks() {
+        String text = "It costs 3.5 dollars at example.com. Done. It was in 2010. Nobody knew.";
+
+        var spans = sentenceDetector.detect(text);
+
+        assertEquals(4, spans.length);
+    }
+
+    @Test
+    void testEmptyText() {
+        assertEquals(0, sentenceDetector.detect("").length);
+        assertEquals(0, sentenceDetector.detect(" \n ").length);
+    }
+}
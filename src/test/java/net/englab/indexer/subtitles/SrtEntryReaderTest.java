@@ -0,0 +1,71 @@
+package net.englab.indexer.subtitles;
+
+import net.englab.common.search.models.common.TimeFrame;
+import net.englab.common.search.models.subtitles.SrtEntry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SrtEntryReaderTest {
+    private static final String SRT = "\uFEFF1\r\n00:00:00,000 --> 00:00:01,500\r\nFirst line\r\nsecond line\r\n\r\n"
+            + "2\r00:00:01,500 --> 00:00:03,000\rWhat’s next?\r\r"
+            + "3\n00:00:03,000 --> 00:00:04,000\n" + "long ".repeat(5000) + "\n";
+
+    private static final List<SrtEntry> EXPECTED_ENTRIES = List.of(
+            new SrtEntry(1, new TimeFrame(0, 1.5), List.of("First line", "second line")),
+            new SrtEntry(2, new TimeFrame(1.5, 3), List.of("What’s next?")),
+            new SrtEntry(3, new TimeFrame(3, 4), List.of("long ".repeat(5000)))
+    );
+
+    @Test
+    void testReader() {
+        assertEquals(EXPECTED_ENTRIES, readAll(new SrtEntryReader(new StringReader(SRT))));
+    }
+
+    @Test
+    void testCharByCharReader() {
+        // every character comes separately, so every line and CRLF is split between reads
+        Reader reader = new StringReader(SRT) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 1));
+            }
+        };
+        assertEquals(EXPECTED_ENTRIES, readAll(new SrtEntryReader(reader)));
+    }
+
+    @Test
+    void testInputStreamAndByteBuffer() {
+        byte[] bytes = SRT.getBytes(StandardCharsets.UTF_8);
+        assertEquals(EXPECTED_ENTRIES, readAll(SrtEntryReader.of(new ByteArrayInputStream(bytes))));
+
+        ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+        assertEquals(EXPECTED_ENTRIES, readAll(SrtEntryReader.of(byteBuffer)));
+        assertFalse(byteBuffer.hasRemaining());
+    }
+
+    @Test
+    void testEmptyInput() {
+        SrtEntryReader srtEntryReader = SrtEntryReader.of("\n\n");
+        assertFalse(srtEntryReader.hasNext());
+        assertThrows(NoSuchElementException.class, srtEntryReader::next);
+    }
+
+    private static List<SrtEntry> readAll(SrtEntryReader srtEntryReader) {
+        List<SrtEntry> entries = new ArrayList<>();
+        try (srtEntryReader) {
+            srtEntryReader.forEachRemaining(entries::add);
+        }
+        return entries;
+    }
+}
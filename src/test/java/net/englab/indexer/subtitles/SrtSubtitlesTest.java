@@ -2,6 +2,7 @@ package net.englab.indexer.subtitles;
 
 import net.englab.common.search.models.common.TimeFrame;
 import net.englab.common.search.models.subtitles.SrtEntry;
+import net.englab.indexer.exceptions.SrtFormatException;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
@@ -56,4 +57,32 @@ class SrtSubtitlesTest {
         );
     }
 
+    @Test
+    void testLineTerminatorsAndBom() {
+        String text = "\uFEFF1\r\n00:00:00,000 --> 00:00:01,500\r\nFirst\u00A0line\tof text\r\n\r\n\r\n"
+                + "2\r00:01:02.25 --> 01:00:00,000\rSecond\r\r"
+                + "3\n00:00:03,000-->00:00:04,000\nThird";
+
+        SrtSubtitles srtSubtitles = new SrtSubtitles(text);
+
+        List<SrtEntry> expectedResult = List.of(
+                new SrtEntry(1, new TimeFrame(0, 1.5), List.of("First line of text")),
+                new SrtEntry(2, new TimeFrame(62.25, 3600), List.of("Second")),
+                new SrtEntry(3, new TimeFrame(3, 4), List.of("Third"))
+        );
+        assertEquals(expectedResult, srtSubtitles.stream().toList());
+    }
+
+    @Test
+    void testMalformedEntries() {
+        assertThrows(SrtFormatException.class, () -> new SrtSubtitles("one\n00:00:00,000 --> 00:00:01,000\nText"));
+        assertThrows(SrtFormatException.class, () -> new SrtSubtitles("1\n\nText"));
+        assertThrows(SrtFormatException.class, () -> new SrtSubtitles("1\n00:00:00,000 00:00:01,000\nText"));
+        assertThrows(SrtFormatException.class, () -> new SrtSubtitles("1\n00:00,000 --> 00:00:01,000\nText"));
+
+        SrtFormatException exception = assertThrows(SrtFormatException.class,
+                () -> new SrtSubtitles("1\n00:00:00,000 --> 00:00:01,000\nText\n\n2\n00:00:01,000 --> 00:00:0x,000"));
+        assertTrue(exception.getMessage().contains("line 6"));
+    }
+
 }
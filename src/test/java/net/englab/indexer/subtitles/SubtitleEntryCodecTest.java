@@ -0,0 +1,74 @@
+package net.englab.indexer.subtitles;
+
+import net.englab.common.search.models.subtitles.SubtitleEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SubtitleEntryCodecTest {
+
+    @Test
+    void testRoundTrip() {
+        List<SubtitleEntry> entries = List.of(
+                new SubtitleEntry(0.0, 1.5, List.of("Hello world!")),
+                new SubtitleEntry(1.5, 3.25, List.of("Привет, мир —", "this is a test.")),
+                new SubtitleEntry(2.0, 2.0, List.of()),
+                new SubtitleEntry(3661.123, 3662.001, List.of("", "♪ lively music ♪"))
+        );
+        assertEntriesEqual(entries, SubtitleEntryCodec.decode(SubtitleEntryCodec.encode(entries)));
+    }
+
+    @Test
+    void testCompressedRoundTrip() {
+        List<SubtitleEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            entries.add(new SubtitleEntry(i * 2.5, i * 2.5 + 2, List.of("Line number " + i + ".")));
+        }
+        byte[] data = SubtitleEntryCodec.encode(entries);
+
+        List<SubtitleEntry> decoded = SubtitleEntryCodec.decode(data);
+
+        assertEntriesEqual(entries, decoded);
+        assertSame(data, SubtitleEntryCodec.encode(decoded));
+    }
+
+    @Test
+    void testEmpty() {
+        assertEquals(List.of(), SubtitleEntryCodec.decode(SubtitleEntryCodec.encode(List.of())));
+    }
+
+    @Test
+    void testUnknownVersion() {
+        byte[] data = SubtitleEntryCodec.encode(List.of());
+        data[0] = 42;
+        assertThrows(IllegalArgumentException.class, () -> SubtitleEntryCodec.decode(data));
+    }
+
+    @Test
+    void testLazyDecoding() {
+        byte[] data = SubtitleEntryCodec.encode(List.of(new SubtitleEntry(0.0, 1.0, List.of("Hello world!"))));
+        // the line count that precedes the length of the line and the line itself
+        data[data.length - "Hello world!".length() - 2] = 2;
+
+        // only the header is read until the entries are accessed
+        List<SubtitleEntry> decoded = SubtitleEntryCodec.decode(data);
+
+        assertEquals(1, decoded.size());
+        assertThrows(IllegalArgumentException.class, () -> decoded.get(0));
+    }
+
+    private static void assertEntriesEqual(List<SubtitleEntry> expected, List<SubtitleEntry> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            // the times are stored in milliseconds
+            assertEquals(expected.get(i).startTime(), actual.get(i).startTime(), 1e-9);
+            assertEquals(expected.get(i).endTime(), actual.get(i).endTime(), 1e-9);
+            assertEquals(expected.get(i).text(), actual.get(i).text());
+        }
+    }
+}
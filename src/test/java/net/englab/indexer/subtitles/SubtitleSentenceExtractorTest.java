@@ -1,10 +1,14 @@
 package net.englab.indexer.subtitles;
 
 import net.englab.common.search.models.subtitles.SubtitleSentence;
+import net.englab.indexer.text.TextTransformations;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
@@ -258,4 +262,91 @@ class SubtitleSentenceExtractorTest {
         assertEquals(2, sentence.rangeMap().get(60));
         assertNull(sentence.rangeMap().get(61));
     }
+
+    @Test
+    void testExtractedSentences() {
+        String text = """
+                1
+                00:00:00,000 --> 00:00:03,000
+                Hello world! How are you? I'm fine.
+                This is a test
+                                
+                2
+                00:00:03,000 --> 00:00:06,600
+                that will catch bugs!
+                """;
+
+        List<ExtractedSentence> sentences = sentenceExtractor.extractSentences(new SrtSubtitles(text));
+
+        assertEquals(4, sentences.size());
+
+        ExtractedSentence sentence = sentences.get(3);
+        assertEquals("This is a test that will catch bugs!", sentence.text());
+        assertEquals(36, sentence.position());
+        assertArrayEquals(new int[]{0, 15, 36}, sentence.boundaries());
+        assertArrayEquals(new int[]{0, 1}, sentence.entries());
+
+        SubtitleSentence subtitleSentence = sentence.toSubtitleSentence();
+        assertEquals(0, subtitleSentence.rangeMap().get(14));
+        assertEquals(1, subtitleSentence.rangeMap().get(15));
+        assertNull(subtitleSentence.rangeMap().get(36));
+    }
+
+    @Test
+    void testChunkedExtraction() {
+        String[] lines = {
+                "Hello world! How are you? I'm fine.", "This is a test", "that will catch bugs!",
+                "Good morning, Mr. Campbell.", "It is not cold ... it is freezing cold.",
+                "\"Oooh! And me!\"", "...this wasn’t really the Doctor Who I personally loved.",
+                "It was an obvious success,", "and I appreciated that a new generation were"
+        };
+        StringBuilder srt = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            srt.append(i + 1).append("\n00:00:00,000 --> 00:00:01,000\n")
+                    .append(lines[i % lines.length]).append("\n\n");
+        }
+        SrtSubtitles srtSubtitles = new SrtSubtitles(srt.toString());
+        SentenceDetector sentenceDetector = new OpenNlpSentenceDetector();
+
+        var singlePass = new SubtitleSentenceExtractor(sentenceDetector, Integer.MAX_VALUE, 0);
+        var chunked = new SubtitleSentenceExtractor(sentenceDetector, 500, 100);
+
+        assertEquals(singlePass.extract(srtSubtitles), chunked.extract(srtSubtitles));
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            var parallel = new SubtitleSentenceExtractor(sentenceDetector, 500, 100, executor);
+            assertEquals(singlePass.extract(srtSubtitles), parallel.extract(srtSubtitles));
+        }
+    }
+
+    @Test
+    void testSoundDescriptionRemoval() {
+        SrtSubtitles srtSubtitles = new SrtSubtitles("""
+                1
+                00:00:00,000 --> 00:00:01,000
+                [intense music] Hello there! (laughs)
+
+                2
+                00:00:01,000 --> 00:00:02,000
+                ♪ Never gonna give you up. ♪ Okay. [door
+
+                3
+                00:00:02,000 --> 00:00:03,000
+                opens] Who is *sighs* there?
+                """);
+        SubtitleSentenceExtractor extractor = new SubtitleSentenceExtractor();
+
+        List<ExtractedSentence> sentences = extractor.extractSentences(srtSubtitles, false);
+        List<ExtractedSentence> transformedSentences = extractor.extractSentences(srtSubtitles, true);
+
+        assertEquals(sentences.size(), transformedSentences.size());
+        for (int i = 0; i < sentences.size(); i++) {
+            ExtractedSentence sentence = sentences.get(i);
+            ExtractedSentence transformedSentence = transformedSentences.get(i);
+            assertEquals(TextTransformations.removeSoundDescriptions(sentence.text()), transformedSentence.text());
+            assertEquals(sentence.position(), transformedSentence.position());
+            assertArrayEquals(sentence.boundaries(), transformedSentence.boundaries());
+            assertArrayEquals(sentence.entries(), transformedSentence.entries());
+        }
+        assertEquals("_______________ Hello there!", transformedSentences.get(0).text());
+    }
 }
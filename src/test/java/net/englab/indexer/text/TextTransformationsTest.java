@@ -0,0 +1,65 @@
+package net.englab.indexer.text;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TextTransformationsTest {
+
+    @Test
+    void testRemoveSoundDescriptions() {
+        assertEquals(mask("[intense music]") + " Hello! " + mask("(noises)"),
+                TextTransformations.removeSoundDescriptions("[intense music] Hello! (noises)"));
+        assertEquals(mask("♫ smooth jazz ♫") + " and " + mask("♪ lively music ♪"),
+                TextTransformations.removeSoundDescriptions("♫ smooth jazz ♫ and ♪ lively music ♪"));
+        assertEquals(mask("*Outro Music*") + " (unclosed [",
+                TextTransformations.removeSoundDescriptions("*Outro Music* (unclosed ["));
+        assertEquals("(" + mask("[a]"), TextTransformations.removeSoundDescriptions("([a]"));
+        // the unclosed markers share the line terminator they have run into
+        assertEquals("(( " + mask("[a]") + " (\n" + mask("(b)"),
+                TextTransformations.removeSoundDescriptions("(( [a] (\n(b)"));
+    }
+
+    @Test
+    void testMaskRange() {
+        char[] chars = "(one) [two. Three] four".toCharArray();
+
+        TextTransformations.maskSoundDescriptions(chars, 6, 11);
+        TextTransformations.maskSoundDescriptions(chars, 12, 23);
+
+        // the brackets of the second description are in different ranges, so they do not match
+        assertEquals("(one) [two. Three] four", new String(chars));
+    }
+
+    @Test
+    void testSameAsRegex() {
+        Pattern pattern = Pattern.compile("\\[.*?]|\\(.*?\\)|♫.*?♫|♪.*?♪|\\*.*?\\*");
+        char[] alphabet = {'a', ' ', '.', '[', ']', '(', ')', '♫', '♪', '*', '\n', '\r', '\u2028', '_'};
+        Random random = new Random(1);
+        for (int t = 0; t < 10_000; t++) {
+            char[] chars = new char[random.nextInt(30)];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = alphabet[random.nextInt(alphabet.length)];
+            }
+            String text = new String(chars);
+
+            Matcher matcher = pattern.matcher(text);
+            StringBuilder expected = new StringBuilder(text);
+            while (matcher.find()) {
+                for (int i = matcher.start(); i < matcher.end(); i++) {
+                    expected.setCharAt(i, '_');
+                }
+            }
+
+            assertEquals(expected.toString(), TextTransformations.removeSoundDescriptions(text), text);
+        }
+    }
+
+    private static String mask(String text) {
+        return "_".repeat(text.length());
+    }
+}